@@ -0,0 +1,94 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import neural.NetworkBatch;
+import neural.NeuralNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import worldObject.Agent;
+
+/**
+ * The think phase without the senses: one tick of the networks of a whole
+ * population, one network at a time and as a NetworkBatch, the batch with its
+ * scalar loops and with the SIMD kernel. All get fresh inputs every time,
+ * like in the simulation. The fork adds jdk.incubator.vector, batchVector
+ * fails if the kernel was not built (JDK 16 or later is needed).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NetworkBatchBenchmark {
+
+    @Param({"15", "150", "1500"})
+    public int agents;
+
+    private NeuralNetwork[] networks;
+    private NetworkBatch batch;
+    private double[] inputs;
+    private SplittableRandom rand;
+
+    @Setup
+    public void setup() {
+        SplittableRandom agentRand = new SplittableRandom(Seeds.AGENT);
+        List<NeuralNetwork> population = new ArrayList<>();
+        for (int i = 0; i < agents; i++) {
+            population.add(new Agent(i, agentRand.split()).neuralNet);
+        }
+        networks = population.toArray(new NeuralNetwork[agents]);
+        batch = new NetworkBatch();
+        batch.pack(population);
+        inputs = new double[networks[0].INPUTS];
+        rand = new SplittableRandom(Seeds.INPUTS);
+    }
+
+    private void feed() {
+        for (NeuralNetwork net : networks) {
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = rand.nextDouble();
+            }
+            net.setInputs(inputs);
+        }
+    }
+
+    @Benchmark
+    public Object networks() {
+        feed();
+        for (NeuralNetwork net : networks) {
+            net.tick();
+        }
+        return networks;
+    }
+
+    @Benchmark
+    public Object batch() {
+        NetworkBatch.setVectorKernelEnabled(false);
+        feed();
+        batch.tick();
+        return batch;
+    }
+
+    @Benchmark
+    public Object batchVector() {
+        if (!NetworkBatch.setVectorKernelEnabled(true)) {
+            throw new IllegalStateException("The vector kernel is not available");
+        }
+        feed();
+        batch.tick();
+        return batch;
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import neural.NeuralNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import worldObject.Agent;
+
+/**
+ * Cost of thinking and of breeding a single agent: one tick of its network
+ * (with fresh inputs every time, like in the simulation) and Agent.clone(),
+ * which copies and mutates the genome.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+
+    private Agent agent;
+    private NeuralNetwork net;
+    private double[] inputs;
+    private SplittableRandom rand;
+
+    @Setup
+    public void setup() {
+        agent = new Agent(0, new SplittableRandom(Seeds.AGENT));
+        net = agent.neuralNet;
+        inputs = new double[net.INPUTS];
+        rand = new SplittableRandom(Seeds.INPUTS);
+    }
+
+    @Benchmark
+    public double[] tick() {
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = rand.nextDouble();
+        }
+        net.setInputs(inputs);
+        net.tick();
+        return net.getOutputs();
+    }
+
+    @Benchmark
+    public Object cloneAgent() {
+        return agent.clone();
+    }
+}
@@ -0,0 +1,16 @@
+package bench;
+
+/**
+ * The fixed seeds of all benchmarks, so every run measures exactly the same
+ * agents and worlds and before/after numbers can be compared
+ */
+final class Seeds {
+
+    static final long AGENT = 1;
+    static final long INPUTS = 2;
+    static final long PLACEMENT = 3;
+    static final long WORLD = 42;
+
+    private Seeds() {
+    }
+}
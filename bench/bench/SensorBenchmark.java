@@ -0,0 +1,98 @@
+package bench;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sensor.Sensor;
+import worldObject.Agent;
+import worldObject.CollidableObject;
+
+/**
+ * The narrow phase tests: one eye against a number of agents scattered
+ * around its host (some in sight, most not) and the bounding box test of
+ * CollidableObject.checkCollision on the same pairs. sectorIntersects and
+ * arc2DIntersects compare the sector test of the eye with the Arc2D it
+ * replaced on the bounds of those agents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int targets;
+
+    private Agent host;
+    private Sensor eye;
+    private Agent[] others;
+    private Rectangle[] bounds;
+
+    @Setup
+    public void setup() {
+        SplittableRandom rand = new SplittableRandom(Seeds.PLACEMENT);
+        host = new Agent(0, new SplittableRandom(Seeds.AGENT));
+        host.setCenterX(1000);
+        host.setCenterY(1000);
+        host.updateFieldOfView();
+        eye = host.getEyes()[0];
+
+        //inside the square around the host that contains the eye's radius
+        others = new Agent[targets];
+        for (int i = 0; i < targets; i++) {
+            others[i] = new Agent(i + 1, rand.split());
+            others[i].setCenterX(400 + rand.nextDouble() * 1200);
+            others[i].setCenterY(400 + rand.nextDouble() * 1200);
+        }
+        bounds = new Rectangle[targets];
+        for (int i = 0; i < targets; i++) {
+            bounds[i] = others[i].getBounds();
+        }
+    }
+
+    @Benchmark
+    public Sensor sensorCollision() {
+        eye.reset();
+        for (Agent a : others) {
+            eye.collision(a);
+        }
+        return eye;
+    }
+
+    @Benchmark
+    public void checkCollision(Blackhole bh) {
+        for (Agent a : others) {
+            bh.consume(CollidableObject.checkCollision(host, a));
+        }
+    }
+
+    @Benchmark
+    public void sectorIntersects(Blackhole bh) {
+        for (Rectangle r : bounds) {
+            bh.consume(eye.intersects(r));
+        }
+    }
+
+    @Benchmark
+    public void arc2DIntersects(Blackhole bh) {
+        Shape arc = eye.getSensor();
+        for (Rectangle r : bounds) {
+            bh.consume(arc.intersects(r));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import evolution.SimulationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import worldObject.Food;
+import worldObject.FoodField;
+
+/**
+ * The collision and sense phase of one tick (SimulationEngine.collisions,
+ * which EvolutionWorld runs every tick) at several population and food sizes.
+ *
+ * The world is built from a fixed seed with the given number of agents and
+ * then topped up (or thinned out) to the given number of food items at
+ * random lattice points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+
+    @Param({"15", "150", "1500"})
+    public int agents;
+
+    @Param({"100", "1000", "10000"})
+    public int food;
+
+    private SimulationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new SimulationEngine(Seeds.WORLD);
+        engine.setPopulationSize(agents);
+        engine.reset();
+
+        FoodField field = engine.getFood();
+        field.clear();
+        field.setCapacity(food);
+        SplittableRandom rand = new SplittableRandom(Seeds.PLACEMENT);
+        int cells = SimulationEngine.BORDER_SIZE / Food.SIZE;
+        while (field.size() < food) {
+            field.spawn(rand.nextInt(cells) * Food.SIZE, rand.nextInt(cells) * Food.SIZE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    //nobody moves between invocations and eaten food is only removed by
+    //purge(), so every invocation finds the same contacts
+    @Benchmark
+    public SimulationEngine collisions() {
+        engine.collisions();
+        return engine;
+    }
+}
@@ -0,0 +1,56 @@
+package neural;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BatchKernel on jdk.incubator.vector: the inputs are gathered and weighted a
+ * vector at a time, the activation step works on whole vectors of neurons.
+ * The lanes left over at the end of a range are done in scalar code.
+ *
+ * The products are exactly the scalar ones. The sigmoid uses the vector exp,
+ * which may differ from Math.exp in the last bit, so runs with this kernel do
+ * not repeat runs without it bit for bit.
+ *
+ * This class needs JDK 16 or later and is built separately from the rest of
+ * the application (see build.xml). NetworkBatch only loads it by reflection.
+ */
+final class VectorKernel implements BatchKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void products(double[] out, int[] inSrc, double[] inWeight, double[] products, int from, int to) {
+        int k = from;
+        for (int end = from + SPECIES.loopBound(to - from); k < end; k += SPECIES.length()) {
+            DoubleVector in = DoubleVector.fromArray(SPECIES, out, 0, inSrc, k);
+            in.mul(DoubleVector.fromArray(SPECIES, inWeight, k)).intoArray(products, k);
+        }
+        for (; k < to; k++) {
+            products[k] = out[inSrc[k]] * inWeight[k];
+        }
+    }
+
+    @Override
+    public void activate(double[] acc, double[] gw, double[] bias, double[] kp, double[] out, double[] oldOut, int lo, int hi) {
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        int i = lo;
+        for (int end = lo + SPECIES.loopBound(hi - lo); i < end; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, acc, i)
+                    .mul(DoubleVector.fromArray(SPECIES, gw, i))
+                    .add(DoubleVector.fromArray(SPECIES, bias, i));
+            a = one.div(a.neg().lanewise(VectorOperators.EXP).add(one));
+            DoubleVector o = DoubleVector.fromArray(SPECIES, out, i);
+            o.intoArray(oldOut, i);
+            o.add(a.sub(o).mul(DoubleVector.fromArray(SPECIES, kp, i))).intoArray(out, i);
+        }
+        for (; i < hi; i++) {
+            double a = acc[i] * gw[i] + bias[i];
+            a = 1.0 / (1.0 + Math.exp(-a));
+            double o = out[i];
+            oldOut[i] = o;
+            out[i] = o + (a - o) * kp[i];
+        }
+    }
+}
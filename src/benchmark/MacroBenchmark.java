@@ -0,0 +1,286 @@
+package benchmark;
+
+import evolution.SimulationEngine;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import util.FastMath;
+
+/**
+ * End to end benchmark: how fast does the simulation make evolutionary
+ * progress. Every workload (see Workload) is evolved from a fixed seed for a
+ * budget of CPU time, the progress measure is the one of the score file, the
+ * average score of the best four agents of a generation.
+ *
+ * Usage: MacroBenchmark [--workload ID|all] [--cpu-seconds S] [--seed S]
+ *                       [--threads N] [--fast-math] [--baseline FILE]
+ *                       [--save-baseline FILE] [--tolerance F]
+ *
+ * For every workload the tick rate and the generation rate per CPU second
+ * (of the whole process, JIT and GC included) are reported, together with the
+ * score versus CPU time curve. The simulation itself is the same on every
+ * machine, only the CPU time it takes differs. Note that the engine starts a
+ * new run every 150 generations, the curve drops back to zero there.
+ *
+ * With --save-baseline the results are stored in a properties file, with
+ * --baseline they are compared to such a file: the rates as a ratio, the
+ * progress as the best score reached within the CPU time both runs had. If
+ * the tick rate of a workload dropped by more than the tolerance (default
+ * 0.1) the exit status is 2.
+ */
+public class MacroBenchmark {
+
+    //the CPU time is a system call, it is only read when this much wall
+    //clock time has passed (or a generation has ended)
+    private static final long CPU_CHECK_NANOS = 10000000;
+
+    //rows of the curve that are printed, the baseline keeps all of them
+    private static final int CURVE_ROWS = 20;
+
+    /**
+     * The outcome of one workload
+     */
+    static final class Result {
+
+        final Workload workload;
+        long ticks;
+        long generations;
+        double cpuSeconds;
+        double ticksPerSecond;
+        double generationsPerHour;
+        double bestScore;
+        //cpu seconds and top four average at the end of every generation
+        final List<double[]> curve = new ArrayList<>();
+
+        Result(Workload workload) {
+            this.workload = workload;
+        }
+
+        //the best score reached within the given CPU time
+        double bestScoreWithin(double seconds) {
+            double best = 0;
+            for (double[] p : curve) {
+                if (p[0] <= seconds) {
+                    best = Math.max(best, p[1]);
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String args[]) throws IOException {
+
+        List<Workload> workloads = new ArrayList<>();
+        double cpuSeconds = 60;
+        long seed = 42;
+        int threads = 1;
+        String baseline = null;
+        String saveBaseline = null;
+        double tolerance = 0.1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workload":
+                    String id = args[++i];
+                    if (id.equals("all")) {
+                        for (Workload w : Workload.values()) {
+                            workloads.add(w);
+                        }
+                    } else {
+                        workloads.add(Workload.byId(id));
+                    }
+                    break;
+                case "--cpu-seconds":
+                    cpuSeconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--fast-math":
+                    FastMath.setEnabled(true);
+                    break;
+                case "--baseline":
+                    baseline = args[++i];
+                    break;
+                case "--save-baseline":
+                    saveBaseline = args[++i];
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.err.println("Usage: MacroBenchmark [--workload ID|all]"
+                            + " [--cpu-seconds S] [--seed S] [--threads N] [--fast-math]"
+                            + " [--baseline FILE] [--save-baseline FILE] [--tolerance F]");
+                    System.exit(1);
+            }
+        }
+        if (workloads.isEmpty()) {
+            workloads.add(Workload.DEFAULT);
+        }
+
+        Properties stored = new Properties();
+        if (baseline != null) {
+            try (InputStream in = new FileInputStream(baseline)) {
+                stored.load(in);
+            }
+        }
+
+        boolean regression = false;
+        List<Result> results = new ArrayList<>();
+        for (Workload w : workloads) {
+            Result r = run(w, seed, threads, cpuSeconds);
+            results.add(r);
+            report(r);
+            if (baseline != null) {
+                regression |= compare(r, seed, stored, tolerance);
+            }
+        }
+
+        if (saveBaseline != null) {
+            save(results, seed, new File(saveBaseline));
+        }
+        if (regression) {
+            System.exit(2);
+        }
+    }
+
+    private static Result run(Workload w, long seed, int threads, double cpuSeconds) {
+        SimulationEngine engine = w.createEngine(seed);
+        engine.setThreads(threads);
+
+        Result r = new Result(w);
+        long budget = (long) (cpuSeconds * 1e9);
+        long start = cpuNanos();
+        long used = 0;
+        long generations = 0;
+        long lastCheck = System.nanoTime();
+
+        while (used < budget) {
+            engine.update();
+            r.ticks++;
+
+            boolean generationEnded = engine.getGenerationsCompleted() != generations;
+            long now = System.nanoTime();
+            if (generationEnded || now - lastCheck >= CPU_CHECK_NANOS) {
+                used = cpuNanos() - start;
+                lastCheck = now;
+            }
+            if (generationEnded) {
+                generations = engine.getGenerationsCompleted();
+                double score = engine.getLastTopAverage(4);
+                r.curve.add(new double[]{used / 1e9, score});
+                r.bestScore = Math.max(r.bestScore, score);
+            }
+        }
+        engine.shutdown();
+
+        r.generations = generations;
+        r.cpuSeconds = used / 1e9;
+        r.ticksPerSecond = r.ticks / r.cpuSeconds;
+        //generations have a fixed number of ticks, so the rate is known
+        //even when not a single generation was completed
+        r.generationsPerHour = r.ticksPerSecond * 3600 / engine.getGenerationTicks();
+        return r;
+    }
+
+    //CPU time of the whole process if the JVM can tell, else of this thread
+    private static long cpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static void report(Result r) {
+        System.out.printf("%s: %d agents, food density %d%n",
+                r.workload.id, r.workload.agents, r.workload.foodDensity);
+        System.out.printf("  %d ticks, %d generations in %.1f cpu s%n", r.ticks, r.generations, r.cpuSeconds);
+        System.out.printf("  %.0f ticks/sec  %.0f generations/hour  best score %.2f%n",
+                r.ticksPerSecond, r.generationsPerHour, r.bestScore);
+        System.out.println("  generation  cpu s  top 4 average");
+        int step = Math.max(1, (r.curve.size() + CURVE_ROWS - 1) / CURVE_ROWS);
+        for (int i = 0; i < r.curve.size(); i++) {
+            if ((i + 1) % step == 0 || i == r.curve.size() - 1) {
+                double[] p = r.curve.get(i);
+                System.out.printf("  %10d %6.1f %14.2f%n", i + 1, p[0], p[1]);
+            }
+        }
+    }
+
+    //prints the comparison, true if the tick rate regressed
+    private static boolean compare(Result r, long seed, Properties stored, double tolerance) {
+        String key = r.workload.id;
+        if (stored.getProperty(key + ".ticksPerSecond") == null) {
+            System.out.println("  no baseline for " + key);
+            return false;
+        }
+        if (!stored.getProperty("seed").equals("" + seed)) {
+            System.out.println("  note: the baseline was run with seed " + stored.getProperty("seed")
+                    + ", the scores are not comparable");
+        }
+        double ticksPerSecond = Double.parseDouble(stored.getProperty(key + ".ticksPerSecond"));
+        double generationsPerHour = Double.parseDouble(stored.getProperty(key + ".generationsPerHour"));
+        Result base = new Result(r.workload);
+        for (String point : stored.getProperty(key + ".curve", "").split(" ")) {
+            if (!point.isEmpty()) {
+                String[] p = point.split(":");
+                base.curve.add(new double[]{Double.parseDouble(p[0]), Double.parseDouble(p[1])});
+            }
+        }
+        double common = Math.min(r.cpuSeconds, Double.parseDouble(stored.getProperty(key + ".cpuSeconds")));
+
+        double ratio = r.ticksPerSecond / ticksPerSecond;
+        System.out.printf("  vs baseline: ticks/sec x%.2f  generations/hour x%.2f%n",
+                ratio, r.generationsPerHour / generationsPerHour);
+        System.out.printf("  best score within %.1f cpu s: %.2f (baseline %.2f)%n",
+                common, r.bestScoreWithin(common), base.bestScoreWithin(common));
+        if (ratio < 1 - tolerance) {
+            System.out.println("  REGRESSION: tick rate dropped by more than " + (int) (tolerance * 100) + "%");
+            return true;
+        }
+        return false;
+    }
+
+    //adds the results to the file, results of other workloads are kept
+    private static void save(List<Result> results, long seed, File file) throws IOException {
+        Properties p = new Properties();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                p.load(in);
+            }
+        }
+        p.setProperty("seed", "" + seed);
+        for (Result r : results) {
+            String key = r.workload.id;
+            p.setProperty(key + ".ticksPerSecond", "" + r.ticksPerSecond);
+            p.setProperty(key + ".generationsPerHour", "" + r.generationsPerHour);
+            p.setProperty(key + ".cpuSeconds", "" + r.cpuSeconds);
+            p.setProperty(key + ".bestScore", "" + r.bestScore);
+            StringBuilder curve = new StringBuilder();
+            for (double[] point : r.curve) {
+                curve.append(point[0]).append(':').append(point[1]).append(' ');
+            }
+            p.setProperty(key + ".curve", curve.toString().trim());
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            p.store(out, "MacroBenchmark baseline");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import evolution.SimulationEngine;
+
+/**
+ * The named worlds the macro benchmark runs
+ */
+public enum Workload {
+
+    //the world as the GUI runs it
+    DEFAULT("default", 15, 1),
+    //ten times the food per agent
+    DENSE_FOOD("dense-food", 15, 10),
+    //large populations, food scaled along
+    AGENTS_1K("1k-agents", 1000, 1),
+    AGENTS_10K("10k-agents", 10000, 1);
+
+    public final String id;
+    public final int agents;
+    public final int foodDensity;
+
+    Workload(String id, int agents, int foodDensity) {
+        this.id = id;
+        this.agents = agents;
+        this.foodDensity = foodDensity;
+    }
+
+    /**
+     * A new engine running this workload from its first generation
+     *
+     * @param seed seed of the engine
+     * @return the engine
+     */
+    public SimulationEngine createEngine(long seed) {
+        SimulationEngine engine = new SimulationEngine(seed);
+        engine.setPopulationSize(agents);
+        engine.setFoodDensity(foodDensity);
+        engine.reset();
+        return engine;
+    }
+
+    public static Workload byId(String id) {
+        for (Workload w : values()) {
+            if (w.id.equals(id)) {
+                return w;
+            }
+        }
+        throw new IllegalArgumentException("Unknown workload " + id);
+    }
+}
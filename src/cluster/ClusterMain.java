@@ -0,0 +1,149 @@
+package cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import selection.TopKSelection;
+import worldObject.Agent;
+
+/**
+ * Evolves a population whose fitness evaluations are farmed out to
+ * FitnessWorker processes. Every generation the population is split into
+ * batches of agents that share a world, the batches are evaluated by the
+ * workers and the best agents of the whole population (plus a copy of each,
+ * like in SimulationEngine.startNextGeneration) make it to the next
+ * generation. The rest is filled up with new random agents.
+ *
+ * Usage: ClusterMain [--port P] [--local-workers N] [--batches B]
+ *                    [--batch-size S] [--generations G] [--timeout-seconds T]
+ *                    [--seed S]
+ *
+ * The population and the world seeds of all evaluations are derived from the
+ * seed, so a run can be repeated no matter how many workers take part.
+ *
+ * Without --local-workers the coordinator waits for workers started by hand
+ * (FitnessWorker host port).
+ */
+public class ClusterMain {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String args[]) throws IOException, InterruptedException {
+
+        int port = 0;
+        int localWorkers = 0;
+        int batches = 4;
+        int batchSize = 15;
+        long generations = Long.MAX_VALUE;
+        int timeoutSeconds = 60;
+        long seed = System.currentTimeMillis();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--local-workers":
+                    localWorkers = Integer.parseInt(args[++i]);
+                    break;
+                case "--batches":
+                    batches = Integer.parseInt(args[++i]);
+                    break;
+                case "--batch-size":
+                    batchSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--generations":
+                    generations = Long.parseLong(args[++i]);
+                    break;
+                case "--timeout-seconds":
+                    timeoutSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.err.println("Usage: ClusterMain [--port P] [--local-workers N]"
+                            + " [--batches B] [--batch-size S] [--generations G]"
+                            + " [--timeout-seconds T] [--seed S]");
+                    System.exit(1);
+            }
+        }
+
+        List<Process> workers = new ArrayList<>();
+        try (FitnessCoordinator coordinator = new FitnessCoordinator(port, timeoutSeconds * 1000)) {
+            System.out.println("Coordinator listening on port " + coordinator.getPort() + ", seed " + seed);
+            for (int i = 0; i < localWorkers; i++) {
+                workers.add(startLocalWorker(coordinator.getPort()));
+            }
+            evolve(coordinator, new SplittableRandom(seed), batches, batchSize, generations);
+        } finally {
+            for (Process p : workers) {
+                p.waitFor();
+            }
+        }
+    }
+
+    private static Process startLocalWorker(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                FitnessWorker.class.getName(), "127.0.0.1", "" + port)
+                .inheritIO()
+                .start();
+    }
+
+    private static void evolve(FitnessCoordinator coordinator, SplittableRandom rand,
+            int batches, int batchSize, long generations) throws IOException, InterruptedException {
+
+        int size = batches * batchSize;
+        int elites = Math.min(3 * batches, size / 2);
+        int speciesID = 0;
+
+        List<Agent> population = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            population.add(new Agent(speciesID++, rand.split()));
+        }
+
+        for (long g = 1; g <= generations; g++) {
+            long start = System.nanoTime();
+
+            //agent k goes into batch k % batches, so the elites that are at
+            //the front of the population are spread over all worlds
+            List<List<Agent>> groups = new ArrayList<>();
+            for (int b = 0; b < batches; b++) {
+                groups.add(new ArrayList<>());
+            }
+            for (int k = 0; k < size; k++) {
+                groups.get(k % batches).add(population.get(k));
+            }
+            List<int[]> results = coordinator.evaluate(groups, rand.nextLong());
+
+            //only the elites are ranked, ties keep the population order
+            int[] scores = new int[size];
+            for (int k = 0; k < size; k++) {
+                scores[k] = results.get(k % batches)[k / batches];
+            }
+            int[] order = TopKSelection.top(scores, elites);
+
+            List<Agent> next = new ArrayList<>();
+            double ave = 0;
+            for (int i = 0; i < elites; i++) {
+                Agent a = population.get(order[i]);
+                ave += scores[order[i]];
+                next.add(a);
+                next.add((Agent) a.clone());
+            }
+            while (next.size() < size) {
+                next.add(new Agent(speciesID++, rand.split()));
+            }
+            population = next;
+
+            System.out.printf("generation %d  top score %d  elite average %.1f  workers %d  %.2f s%n",
+                    g, scores[order[0]], ave / elites, coordinator.getWorkerCount(),
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
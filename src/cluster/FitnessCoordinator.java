@@ -0,0 +1,311 @@
+package cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import worldObject.Agent;
+
+/**
+ * Hands out fitness evaluations to FitnessWorker processes over TCP.
+ *
+ * Workers connect to the coordinator and announce the protocol version. Every
+ * connection is served by its own thread that takes jobs from a shared queue,
+ * so faster workers simply get more jobs. A job is one batch of genomes that is
+ * evaluated together in one world, the answer is the score of every agent.
+ * Every job carries the seed of the world it is evaluated in, so the scores
+ * do not depend on which worker ran it.
+ *
+ * Protocol (all ints big endian, see DataOutputStream):
+ *   worker: PROTOCOL_VERSION
+ *   coordinator: job id, world seed, payload length, payload (see
+ *                GenomeCodec.encodeBatch)
+ *   worker: job id, count, count scores
+ *   ...
+ *   coordinator: SHUTDOWN
+ *
+ * A batch holds at most GenomeCodec.MAX_BATCH agents, both sides refuse
+ * larger frames before allocating them.
+ *
+ * If a worker disconnects, fails or does not answer within the timeout, its
+ * connection is dropped and the job it held is put back into the queue for
+ * another worker. A job that failed MAX_ATTEMPTS times fails the whole
+ * evaluation, so does a whole timeout without a single worker connected (or
+ * closing the coordinator). evaluate() may be called from several threads at
+ * once, e.g. by islands sharing one coordinator.
+ */
+public final class FitnessCoordinator implements Closeable {
+
+    public static final int PROTOCOL_VERSION = 2;
+    static final int SHUTDOWN = -1;
+
+    private final int MAX_ATTEMPTS = 3;
+
+    private final ServerSocket server;
+    private final int timeoutMillis;
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final Set<Thread> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Evaluation> running = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed = false;
+    private final AtomicInteger nextJobId = new AtomicInteger();
+    private final AtomicInteger requeued = new AtomicInteger();
+
+    /**
+     * Starts listening on the loopback address
+     *
+     * @param port port to listen on, 0 for any free port
+     * @param timeoutMillis how long a worker may take for one job
+     * @throws IOException if the port cannot be opened
+     */
+    public FitnessCoordinator(int port, int timeoutMillis) throws IOException {
+        this(new ServerSocket(port, 50, InetAddress.getLoopbackAddress()), timeoutMillis);
+    }
+
+    /**
+     * @param server socket the workers connect to, e.g. bound to all
+     * interfaces for workers on other machines
+     * @param timeoutMillis how long a worker may take for one job
+     */
+    public FitnessCoordinator(ServerSocket server, int timeoutMillis) {
+        this.server = server;
+        this.timeoutMillis = timeoutMillis;
+        this.acceptor = new Thread(this::acceptWorkers, "fitness-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getWorkerCount() {
+        return connections.size();
+    }
+
+    //jobs waiting for a worker
+    int getQueuedJobs() {
+        return queue.size();
+    }
+
+    //jobs that were put back into the queue after their worker was lost
+    int getRequeuedJobs() {
+        return requeued.get();
+    }
+
+    /**
+     * Evaluates every batch on some worker and waits for all results. The
+     * agents are encoded on the calling thread, they are not touched after
+     * this method has started sending.
+     *
+     * @param batches groups of agents that are evaluated together
+     * @param seed the world seeds of the batches are derived from this
+     * @return the scores of every batch, in the order of its agents
+     * @throws IOException if a job failed on too many workers, no worker was
+     * connected for a whole timeout or the coordinator was closed
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalArgumentException if a batch has more than
+     * GenomeCodec.MAX_BATCH agents
+     */
+    public List<int[]> evaluate(List<List<Agent>> batches, long seed) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IOException("Coordinator is closed");
+        }
+
+        Evaluation evaluation = new Evaluation(batches.size());
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Job> jobs = new ArrayList<>();
+        for (List<Agent> batch : batches) {
+            jobs.add(new Job(nextJobId.getAndIncrement(), seeds.nextLong(), batch.size(),
+                    GenomeCodec.encodeBatch(batch), evaluation));
+        }
+        running.add(evaluation);
+        queue.addAll(jobs);
+
+        try {
+            //a worker that is connected either answers or is dropped within
+            //the timeout, without any there is nobody to wait for
+            boolean hadWorkers = true;
+            while (!evaluation.done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                boolean hasWorkers = !connections.isEmpty();
+                if (!hasWorkers && !hadWorkers) {
+                    evaluation.fail(new IOException("No worker connected for " + timeoutMillis + " ms"));
+                }
+                hadWorkers = hasWorkers;
+            }
+        } finally {
+            running.remove(evaluation);
+        }
+        if (evaluation.failure != null) {
+            queue.removeAll(jobs);
+            throw evaluation.failure;
+        }
+
+        List<int[]> scores = new ArrayList<>();
+        for (Job job : jobs) {
+            scores.add(job.scores);
+        }
+        return scores;
+    }
+
+    private void acceptWorkers() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                Thread t = new Thread(() -> serve(socket), "fitness-worker-" + socket.getPort());
+                t.setDaemon(true);
+                connections.add(t);
+                t.start();
+            } catch (IOException ex) {
+                if (!closed) {
+                    Logger.getLogger(FitnessCoordinator.class.getName()).log(Level.WARNING, "Accepting a worker failed", ex);
+                }
+            }
+        }
+    }
+
+    //hand jobs to one worker until it fails or the coordinator is closed, a
+    //job the worker holds when the connection is lost goes back to the queue
+    private void serve(Socket socket) {
+        Job job = null;
+        IOException cause = null;
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+            int version = in.readInt();
+            if (version != PROTOCOL_VERSION) {
+                throw new IOException("Worker speaks protocol " + version);
+            }
+
+            try {
+                while (!closed) {
+                    job = queue.take();
+                    out.writeInt(job.id);
+                    out.writeLong(job.seed);
+                    out.writeInt(job.payload.length);
+                    out.write(job.payload);
+                    out.flush();
+
+                    int id = in.readInt();
+                    int count = in.readInt();
+                    if (count < 0 || count > GenomeCodec.MAX_BATCH) {
+                        throw new IOException("Invalid result size " + count);
+                    }
+                    if (id != job.id || count != job.size) {
+                        throw new IOException("Unexpected answer for job " + job.id);
+                    }
+                    int[] scores = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        scores[i] = in.readInt();
+                    }
+                    job.complete(scores);
+                    job = null;
+                }
+            } catch (InterruptedException ex) {
+                //closed while waiting for a job
+            }
+            out.writeInt(SHUTDOWN);
+            out.flush();
+        } catch (IOException ex) {
+            if (!closed) {
+                Logger.getLogger(FitnessCoordinator.class.getName()).log(Level.WARNING,
+                        "Lost worker " + socket.getRemoteSocketAddress() + ": " + ex);
+            }
+            cause = ex;
+        } finally {
+            connections.remove(Thread.currentThread());
+            if (job != null) {
+                retry(job, cause != null ? cause : new IOException("Connection to the worker was closed"));
+            }
+        }
+    }
+
+    private void retry(Job job, IOException cause) {
+        if (job.evaluation.failure != null) {
+            return;
+        }
+        job.attempts++;
+        if (job.attempts >= MAX_ATTEMPTS) {
+            job.evaluation.fail(new IOException("Job " + job.id + " failed on " + job.attempts + " workers", cause));
+        } else {
+            requeued.incrementAndGet();
+            queue.add(job);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Thread t : connections) {
+            t.interrupt();
+        }
+        for (Evaluation evaluation : running) {
+            evaluation.fail(new IOException("Coordinator is closed"));
+        }
+    }
+
+    private static final class Evaluation {
+
+        final CountDownLatch done;
+        volatile IOException failure = null;
+
+        Evaluation(int jobs) {
+            done = new CountDownLatch(jobs);
+        }
+
+        void fail(IOException ex) {
+            if (done.getCount() == 0) {
+                return;
+            }
+            failure = ex;
+            while (done.getCount() > 0) {
+                done.countDown();
+            }
+        }
+    }
+
+    private static final class Job {
+
+        final int id;
+        final long seed;
+        final int size;
+        final byte[] payload;
+        final Evaluation evaluation;
+        int attempts = 0;
+        volatile int[] scores;
+
+        Job(int id, long seed, int size, byte[] payload, Evaluation evaluation) {
+            this.id = id;
+            this.seed = seed;
+            this.size = size;
+            this.payload = payload;
+            this.evaluation = evaluation;
+        }
+
+        void complete(int[] scores) {
+            this.scores = scores;
+            evaluation.done.countDown();
+        }
+    }
+}
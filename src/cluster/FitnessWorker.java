@@ -0,0 +1,98 @@
+package cluster;
+
+import evolution.SimulationEngine;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import worldObject.Agent;
+
+/**
+ * A worker process for FitnessCoordinator. It connects to the coordinator,
+ * then evaluates one batch of genomes after the other: the agents are put
+ * into a fresh headless world with the seed of the job that runs for one
+ * generation, and their scores are sent back.
+ *
+ * Usage: FitnessWorker host port
+ */
+public class FitnessWorker {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String args[]) {
+        if (args.length != 2) {
+            System.err.println("Usage: FitnessWorker host port");
+            System.exit(1);
+        }
+
+        try {
+            run(args[0], Integer.parseInt(args[1]));
+        } catch (IOException ex) {
+            System.err.println("Fitness worker stopped: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public static void run(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            serve(socket);
+        }
+    }
+
+    //evaluate the jobs the coordinator sends over socket until it shuts the
+    //worker down
+    static void serve(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        out.writeInt(FitnessCoordinator.PROTOCOL_VERSION);
+        out.flush();
+
+        while (true) {
+            int id = in.readInt();
+            if (id == FitnessCoordinator.SHUTDOWN) {
+                break;
+            }
+            long seed = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > GenomeCodec.MAX_BATCH_BYTES) {
+                throw new IOException("Invalid job length " + length);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            int[] scores = evaluate(seed, payload);
+
+            out.writeInt(id);
+            out.writeInt(scores.length);
+            for (int s : scores) {
+                out.writeInt(s);
+            }
+            out.flush();
+        }
+    }
+
+    //run one generation with the given agents and collect their scores
+    //right before the generation would end
+    private static int[] evaluate(long seed, byte[] payload) throws IOException {
+        SimulationEngine engine = new SimulationEngine(seed);
+        List<Agent> agents = GenomeCodec.decodeBatch(payload, engine.splitRandom());
+        //food for this many agents, as in a local world of the same size
+        engine.setPopulationSize(Math.max(1, agents.size()));
+        engine.setPopulation(agents);
+        while (engine.getNextGenTimer() > 1) {
+            engine.update();
+        }
+
+        int[] scores = new int[agents.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = agents.get(i).score;
+        }
+        return scores;
+    }
+}
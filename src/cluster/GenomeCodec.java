@@ -0,0 +1,107 @@
+package cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import neural.NeuralNetwork;
+import worldObject.Agent;
+
+/**
+ * Binary encoding of agent genomes for sending them to other processes. An
+ * agent is written as its species id, generation, spike percent and mutate
+ * rate followed by the genome of its network (see
+ * NeuralNetwork.writeGenome). Position, life, score and the activations are
+ * not part of the genome, decoded agents start like freshly spawned ones.
+ */
+public final class GenomeCodec {
+
+    //most agents in one batch
+    public static final int MAX_BATCH = 1 << 12;
+
+    //the most bytes of one encoded agent, all agents have the same network
+    //shape
+    private static final long MAX_AGENT_BYTES = 4 + 4 + 8 + 8
+            + NeuralNetwork.maxGenomeBytes(new Agent(0, new SplittableRandom(0)).neuralNet.GENES);
+
+    //the most bytes of an encoded batch of MAX_BATCH agents
+    public static final int MAX_BATCH_BYTES = (int) maxBatchBytes(MAX_BATCH);
+
+    private GenomeCodec() {
+    }
+
+    /**
+     * @param agents number of agents in a batch
+     * @return the most bytes encodeBatch produces for them
+     */
+    public static long maxBatchBytes(int agents) {
+        return 4 + agents * MAX_AGENT_BYTES;
+    }
+
+    public static void writeAgent(DataOutput out, Agent agent) throws IOException {
+        out.writeInt(agent.speciesId);
+        out.writeInt(agent.generation);
+        out.writeDouble(agent.spikePercent);
+        out.writeDouble(agent.mutateRate);
+        agent.neuralNet.writeGenome(out);
+    }
+
+    /**
+     * @param in source
+     * @param rand random stream owned by the new agent
+     * @return a new agent with the decoded genome
+     * @throws IOException if reading fails or the genome does not fit an
+     * agent
+     */
+    public static Agent readAgent(DataInput in, SplittableRandom rand) throws IOException {
+        Agent agent = new Agent(in.readInt(), rand);
+        agent.generation = in.readInt();
+        agent.spikePercent = in.readDouble();
+        agent.mutateRate = in.readDouble();
+
+        NeuralNetwork nn = NeuralNetwork.readGenome(in, rand.split());
+        if (nn.INPUTS != agent.neuralNet.INPUTS
+                || nn.HIDDEN != agent.neuralNet.HIDDEN
+                || nn.OUTPUTS != agent.neuralNet.OUTPUTS) {
+            throw new IOException("Genome does not fit the agent's network");
+        }
+        agent.neuralNet = nn;
+        return agent;
+    }
+
+    //a batch is the number of agents (at most MAX_BATCH) followed by the
+    //agents
+    public static byte[] encodeBatch(List<Agent> agents) throws IOException {
+        if (agents.size() > MAX_BATCH) {
+            throw new IllegalArgumentException("More than " + MAX_BATCH + " agents in a batch");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(agents.size());
+        for (Agent a : agents) {
+            writeAgent(out, a);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    //every agent gets a stream split off rand
+    public static List<Agent> decodeBatch(byte[] data, SplittableRandom rand) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int count = in.readInt();
+        if (count < 0 || count > MAX_BATCH) {
+            throw new IOException("Invalid batch size " + count);
+        }
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            agents.add(readAgent(in, rand.split()));
+        }
+        return agents;
+    }
+}
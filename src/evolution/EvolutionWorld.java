@@ -1,77 +1,74 @@
 package evolution;
 
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.io.BufferedWriter; 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.io.BufferedWriter;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JPanel;
-import sensor.Sensor;
+import spatial.IndexBuffer;
 import worldObject.Agent;
-import worldObject.CollidableObject;
 import worldObject.Food;
 
 public final class EvolutionWorld extends JPanel implements Runnable, MouseListener, KeyListener {
 
     //Various Simulation variables
     private final AtomicBoolean isRunning;
-    private int threadSpeed = 1;
-    private List<Agent> agentList;
-    private List<Food> foodList;
+    private final SimulationEngine engine;
+    //speed, turbo, pause and step, also available over JMX
+    private final SimulationControl control;
     private final ScreenControls screenControls;
 
-    //keeps track of how many species there are
-    int speciesID = 0;
-
-    //Spawn agents
-    private final int AGENT_SPAWN_AMOUNT = 15;
-
-    //Spawn food
-    public static long FOOD_SPAWN_PERIOD = 300;
-    private final int FOOD_SPAWN_AMOUNT = 100;
-    private long lastFoodSpawn = 0;
-
-    //Size of the containment area
-    public static final int BORDER_SIZE = 2000;
-
-    //Util - used in almost every classes
-    public static Random rand;
-
-    //Write data to a file (Simulation analysis) 
-    private final int TIME_UNTIL_NEXT_GEN = 1200;
-    private int nextGenTimer = TIME_UNTIL_NEXT_GEN;
-    private BufferedWriter scoreFile;
-    private int numGenerations = 1;
+    //the world as of the last tick handed to the display, painting reads
+    //only this so it never waits for the simulation
+    private volatile RenderSnapshot snapshot = null;
+    //set when a snapshot is published, cleared when painting starts
+    private final AtomicBoolean paintPending = new AtomicBoolean(false);
+    //simulation thread only
+    private long publishedAt = 0;
+    private static final long STALE_NANOS = 250000000L;
+    //the profiler lines of the HUD, simulation thread only, refreshed every
+    //PROFILE_PERIOD snapshots (lines() sorts all sample windows)
+    private List<String> profileLines = Collections.emptyList();
+    private int sinceProfile = 0;
+    private static final int PROFILE_PERIOD = 30;
 
     //used for auto targeting an Agent
     int dx = 0;
     int dy = 0;
 
-    //used to record empirical data
-    int fileCount = 0;
-    private BufferedWriter brainActivity;
+    //painting only: the visible part of the world, what is in it and a
+    //shape reused for every eye
+    private final Rectangle view = new Rectangle();
+    private final IndexBuffer visibleAgents = new IndexBuffer();
+    private final IndexBuffer visibleFood = new IndexBuffer();
+    private final Arc2D eyeArc = new Arc2D.Double();
+
+    //how far the spike, the health bar and the debug text of an agent reach
+    //from its top left corner, and the width allowed for that text
+    private static final int AGENT_REACH = 200;
+    private static final int AGENT_TEXT_WIDTH = 120;
 
     //Constructor
     public EvolutionWorld() {
 
         super();
-        rand = new Random(System.currentTimeMillis());
+        engine = new SimulationEngine();
+        control = new SimulationControl(engine);
+        control.register("gui");
         screenControls = ScreenControls.getInstance();
-        init();
 
         setFocusable(true);
         addKeyListener(screenControls);
@@ -95,279 +92,98 @@ public final class EvolutionWorld extends JPanel implements Runnable, MouseListe
      * @return brainActivity
      */
     public BufferedWriter getBrainActivityBuffWriter() {
-        return brainActivity;
+        return engine.getBrainActivityBuffWriter();
     }
 
     public Agent getTargetAgent() {
         return screenControls.getTarget();
     }
 
-    public synchronized void init() {
-
-        //init random seed. This is used in varous classes
-        rand = new Random(System.currentTimeMillis());
-
-        /*
-        //These writers are used to recored empirical data about the agent
-        try {
-            scoreFile = new BufferedWriter(new FileWriter(new File("score" + fileCount + ".txt")));
-            brainActivity = new BufferedWriter(new FileWriter(new File("brainActivity.txt")));
-        } catch (IOException ex) {
-            Logger.getLogger(EvolutionWorld.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        */
-
-        //init agents
-        agentList = new ArrayList<>();
-        for (int i = 0; i < AGENT_SPAWN_AMOUNT; i++) {
-            agentList.add(new Agent(speciesID++));
-        }
-
-        //init food
-        foodList = new ArrayList<>();
-        for (int i = 0; i < FOOD_SPAWN_AMOUNT; i++) {
-            int x = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
-            int y = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
-            foodList.add(new Food(x, y));
-        }
+    public SimulationEngine getEngine() {
+        return engine;
+    }
 
+    public SimulationControl getControl() {
+        return control;
     }
 
     public void reset() {
         //screenControls.stopFollowing();
-        init();
-    }
-
-    public void timedSpawn() {
-
-        //Spawn random food
-        if (System.currentTimeMillis() >= lastFoodSpawn + (FOOD_SPAWN_PERIOD / threadSpeed)) {
-            int x = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
-            int y = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
-            foodList.add(new Food(x, y));
-            lastFoodSpawn = System.currentTimeMillis();
-        }
-
-    }
-
-    public void collisions() {
-
-        //Agent vs Agent
-        for (int i = 0; i < agentList.size() - 1; i++) {
-            for (int j = i + 1; j < agentList.size(); j++) {
-                Agent agent1 = agentList.get(i);
-                Agent agent2 = agentList.get(j);
-                if (CollidableObject.checkCollision(agent1, agent2)) {
-                    agent1.handleCollision(agent2);
-                    agent2.handleCollision(agent1);
-                }
-            }
-        }
-
-        //Agent vs Food
-        for (int i = 0; i < agentList.size(); i++) {
-            for (int j = 0; j < foodList.size(); j++) {
-                Agent agent = agentList.get(i);
-                Food food = foodList.get(j);
-                if (CollidableObject.checkCollision(agent, food)) {
-                    agent.handleCollision(food);
-                    food.handleCollision(agent);
-                }
-            }
-        }
-
-        //AgentEyes vs Agents
-        for (int i = 0; i < agentList.size(); i++) {
-            for (int j = 0; j < agentList.size(); j++) {
-
-                if (i == j) {
-                    continue;
-                }
-
-                Agent agent1 = agentList.get(i);
-                Agent agent2 = agentList.get(j);
-                Sensor[] eyes = agent1.getEyes();
-                for (Sensor eye : eyes) {
-                    eye.collision(agent2);
-                }
-            }
-        }
-
-        //AgentEyes vs Food
-        for (int i = 0; i < agentList.size(); i++) {
-            for (int j = 0; j < foodList.size(); j++) {
-
-                Agent agent = agentList.get(i);
-                Sensor[] eyes = agent.getEyes();
-                Food food = foodList.get(j);
-
-                for (Sensor eye : eyes) {
-                    eye.collision(food);
-                }
-
-            }
-        }
+        engine.reset();
     }
 
     public void startNextGeneration() {
-        synchronized (this) {
-
-            numGenerations++;
-            if (numGenerations > 150) {
-                close();
-                fileCount++;
-                this.numGenerations = 1;
-                reset();
-            }
-
-            foodList = new ArrayList<>();
-            for (int i = 0; i < FOOD_SPAWN_AMOUNT; i++) {
-                int x = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
-                int y = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
-                foodList.add(new Food(x, y));
-            }
-
-            //Sort the agent list according to score so that the 
-            //top agents with the highest scores can be selected
-            Object[] agentScoreArray = agentList.toArray();
-            Arrays.sort(agentScoreArray);
-
-            //Average the top top four agents scores and write it to a file.
-            //this is used to collect statistical data to measure
-            //the averge score vs number of generations. The results
-            //show an increase in the average score with time. 
-            try {
-                double ave = 0;
-                for (int i = 0; i < 4; i++) {
-                    ave += ((Agent) agentScoreArray[i]).score;
-                }
-                ave /= 4;
-                scoreFile.write("" + ave + "\n");
-            } catch (IOException ex) {
-            }
-
-            //These will be the top agent from this round that will 
-            //be allowed to move onto the next round
-            List<Agent> elites = new ArrayList<>();
-
-            //If the user has an agent selected then that agent is guaranteed
-            //to make it to the next round. This is to make it easy for
-            //recording brain activity so neural complexity can be measured
-            Agent selectedAgent = null;
-            if (screenControls.getTarget() != null) {
-                selectedAgent = screenControls.getTarget();
-                selectedAgent.setLife(1);
-                selectedAgent.score = 0;
-                elites.add(selectedAgent);
-            }
-
-            //get top 4 agents with the highest score and
-            //allow them to move onto the next round in addition 
-            //to a mutated copy of themselves
-            for (int i = 0; i < 3; i++) {
-                Agent a = (Agent) agentScoreArray[i];
-                if (!a.equals(selectedAgent)) {
-                    a.score = 0;
-                    elites.add(a);
-                    elites.add((Agent) a.clone());
-                }
-            }
-            agentList = elites;
-
-            //Some agents (the winners) will be copied to the next round.
-            //The remaining agents will be randomly created
-            for (int i = 0; i < AGENT_SPAWN_AMOUNT - elites.size(); i++) {
-                agentList.add(new Agent(speciesID++));
-            }
-
-            //Set the time for when the next generation will occur
-            nextGenTimer = TIME_UNTIL_NEXT_GEN;
-        }
-    }
-
-    public void purge() {
-
-        //purge agent list
-        Iterator<Agent> a_iterator = agentList.listIterator();
-        while (a_iterator.hasNext()) {
-            Agent agent = a_iterator.next();
-            if (agent.getLife() <= 0) {
-                if (agent.wasKilled) {
-                    //not used at the moment
-                }
-                //For this version agents do not die when they
-                //lose all of their life, instead if some other 
-                //agent kill them they lose their score. Thus life 
-                //in this way acts like defence for an agents score.
-
-                //iterator.remove();
-            }
-        }
-
-        //purge food
-        Iterator<Food> f_iterator = foodList.listIterator();
-        while (f_iterator.hasNext()) {
-            Food f = f_iterator.next();
-            if (!f.isAlive) {
-                f_iterator.remove();
-            }
-        }
-
+        engine.setSelectedAgent(screenControls.getTarget());
+        engine.startNextGeneration();
     }
 
     public void requestTargetHighestScore() {
-        synchronized (this) {
-            Agent follow = null;
-            int highestScore = 0;
-            for (Agent agent : agentList) {
-                if (agent.score >= highestScore) {
-                    highestScore = agent.score;
-                    follow = agent;
-                }
-            }
-            screenControls.followTarget(follow);
-        }
+        screenControls.followTarget(engine.getHighestScoringAgent());
     }
 
-    public synchronized void update() {
-
-        //Generation managment
-        nextGenTimer--;
-        if (nextGenTimer <= 0) {
-            startNextGeneration();
+    public void update() {
+        engine.setSelectedAgent(screenControls.getTarget());
+
+        //the profiler is shown in the environment debug info
+        TickProfiler profiler = engine.getProfiler();
+        profiler.setEnabled(Debug.envDebug);
+        long t = profiler.start();
+        control.update();
+        if (t != 0) {
+            //whatever update() did not spend ticking was spent waiting for
+            //the lock, e.g. while the world was being painted
+            long wait = System.nanoTime() - t - profiler.getLast(TickProfiler.Metric.TICK);
+            profiler.record(TickProfiler.Metric.LOCK_WAIT, Math.max(0, wait));
         }
+    }
 
-        //spawn new bots/food every 'x' seconds
-        timedSpawn();
+    public void close() {
+        engine.close();
+    }
 
-        //update agents
-        for (Agent a : agentList) {
-            a.update();
+    /**
+     * Hands the display a copy of the current tick. While the last snapshot
+     * has not been painted yet the simulation is outrunning the display, then
+     * nothing is copied and the frame is skipped. A snapshot that waited
+     * longer than STALE_NANOS is replaced anyway, in case its paint got lost
+     * (e.g. while the panel was not showing).
+     */
+    private void publish() {
+        long now = System.nanoTime();
+        if (paintPending.getAndSet(true) && now - publishedAt < STALE_NANOS) {
+            return;
         }
-
-        //age food and essence 
-        for (Food food : foodList) {
-            food.age();
+        TickProfiler profiler = engine.getProfiler();
+        long t = profiler.start();
+        if (!Debug.envDebug) {
+            profileLines = Collections.emptyList();
+        } else if (profileLines.isEmpty() || ++sinceProfile >= PROFILE_PERIOD) {
+            profileLines = Collections.unmodifiableList(profiler.lines());
+            sinceProfile = 0;
         }
-
-        //test and handle collisions
-        collisions();
-
-        //purge all dead food and agents
-        purge();
-
+        snapshot = engine.snapshot(screenControls.getTarget(), profileLines);
+        profiler.lap(TickProfiler.Metric.SNAPSHOT, t);
+        publishedAt = now;
+        repaint();
     }
 
-    public void close() {
-        try {
-            scoreFile.close();
-        } catch (IOException ex) {
-            Logger.getLogger(EvolutionWorld.class.getName()).log(Level.SEVERE, null, ex);
-        }
+    //the last snapshot handed to the display, null before the first tick
+    RenderSnapshot getSnapshot() {
+        return snapshot;
     }
 
     @Override
-    public synchronized void paintComponent(Graphics g) {
+    public void paintComponent(Graphics g) {
+        paintPending.set(false);
+        RenderSnapshot s = snapshot;
+        long t = engine.getProfiler().start();
+        paintWorld(g, s);
+        engine.getProfiler().lap(TickProfiler.Metric.PAINT, t);
+    }
+
+    //paints the snapshot, nothing of the engine is read from here (the
+    //profiler lines come with the snapshot, see publish)
+    private void paintWorld(Graphics g, RenderSnapshot s) {
 
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
@@ -379,57 +195,86 @@ public final class EvolutionWorld extends JPanel implements Runnable, MouseListe
         g2d.setColor(boarderColor);
         g2d.fillRect(0, 0, getWidth(), getHeight());
 
+        if (s == null) {
+            return;
+        }
+
         if (Debug.envDebug) {
 
             boarderColor = Debug.screenInv ? Color.WHITE : Color.BLACK;
             g2d.setColor(boarderColor);
 
-            g2d.drawString("Generation: " + numGenerations, 10, 20);
-            g2d.drawString("Time until next Gen: " + this.nextGenTimer, 10, 40);
-            g2d.drawString("Thread Mult: " + this.threadSpeed, 10, 60);
+            g2d.drawString("Generation: " + s.generation, 10, 20);
+            g2d.drawString("Time until next Gen: " + s.nextGenTimer, 10, 40);
+            g2d.drawString("Thread Mult: " + (control.isTurbo() ? "turbo" : control.getSpeed())
+                    + (control.isPaused() ? " (paused)" : ""), 10, 60);
 
-            Object[] a = agentList.toArray();
-            Arrays.sort(a);
             int co = 0;
-            for (Object aa : a) {
-                g2d.drawString("Score: " + ((Agent) aa).score, 20, 100 + (20 * (co++)));
+            for (int score : s.sortedScores()) {
+                g2d.drawString("Score: " + score, 20, 100 + (20 * (co++)));
             }
+
+            //tick profile, in the top right corner
+            Font font = g2d.getFont();
+            g2d.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            int line = 0;
+            for (String str : s.profile) {
+                g2d.drawString(str, getWidth() - 460, 20 + (15 * (line++)));
+            }
+            g2d.setFont(font);
         }
 
-        //adjust for screen controls   
+        //adjust for screen controls (getX and getY move the camera, they
+        //are called once per frame)
         double scale = screenControls.getScale();
+        if (s.target >= 0) {
+            screenControls.track(s.centerX(s.target), s.centerY(s.target));
+        }
+        int cameraX = screenControls.getX();
+        int cameraY = screenControls.getY();
 
         //affine transformations
         g2d.translate(getWidth() / 2, getHeight() / 2);
         g2d.scale(scale, scale);
-        g2d.translate(-screenControls.getX(), -screenControls.getY());
+        g2d.translate(-cameraX, -cameraY);
+
+        //the part of the world that is on screen, with a pixel to spare for
+        //rounding and strokes
+        int viewX = (int) Math.floor(cameraX - (getWidth() / 2) / scale) - 1;
+        int viewY = (int) Math.floor(cameraY - (getHeight() / 2) / scale) - 1;
+        view.setBounds(viewX, viewY,
+                (int) Math.ceil(cameraX + (getWidth() - getWidth() / 2) / scale) + 1 - viewX,
+                (int) Math.ceil(cameraY + (getHeight() - getHeight() / 2) / scale) + 1 - viewY);
 
         //draw game boarder
         boarderColor = Debug.screenInv ? Color.WHITE : Color.BLACK;
         g2d.setColor(boarderColor);
-        g2d.drawRect(0, 0, BORDER_SIZE, BORDER_SIZE);
+        g2d.drawRect(0, 0, SimulationEngine.BORDER_SIZE, SimulationEngine.BORDER_SIZE);
 
-        Agent target = screenControls.getTarget();
-        if (target != null) {
-            int ax = (int) target.getX() - 20;
-            int ay = (int) target.getY() - 20;
-            int size = (int) target.getSize() + 40;
+        if (s.target >= 0) {
+            int ax = (int) s.agentX[s.target] - 20;
+            int ay = (int) s.agentY[s.target] - 20;
+            int size = s.agentSize[s.target] + 40;
             g2d.setColor(new Color(0.3f, 0.0f, 0.7f, 0.6f));
             g2d.fillOval(ax, ay, size, size);
-            target.drawNeuralNetwork(g2d);
+            drawNeuralNetwork(g2d, s);
         }
 
         //draw food
         if (Debug.drawFood) {
-            for (Food food : foodList) {
-                food.draw(g2d);
+            Color foodBoarder = Debug.screenInv ? Color.WHITE : Color.BLACK;
+            s.foodIn(view.x, view.y, view.width, view.height, visibleFood);
+            for (int k = 0; k < visibleFood.size(); k++) {
+                int i = visibleFood.get(k);
+                g2d.setColor(new Color(0, 255, 0, (int) (0.8 * 255 * s.foodLife[i])));
+                g2d.fillRect(s.foodX[i], s.foodY[i], Food.SIZE, Food.SIZE);
+                g2d.setColor(foodBoarder);
+                g2d.drawRect(s.foodX[i], s.foodY[i], Food.SIZE, Food.SIZE);
                 if (Debug.debug) {
-                    boarderColor = Debug.screenInv ? Color.WHITE : Color.BLACK;
-                    g2d.setColor(boarderColor);
                     g2d.drawString(""
-                            + (int) (100 * food.getFoodPercent()),
-                            (int) (food.getX() + food.getSize() / 5),
-                            (int) (food.getY() + food.getSize() / 1.7));
+                            + (int) (100 * s.foodLife[i]),
+                            s.foodX[i] + Food.SIZE / 5,
+                            (int) (s.foodY[i] + Food.SIZE / 1.7));
                 }
             }
         }
@@ -437,16 +282,23 @@ public final class EvolutionWorld extends JPanel implements Runnable, MouseListe
         /**
          * *** DRAW AGENT ****
          */
-        for (Agent agent : agentList) {
-            agent.drawFieldOFVision(g2d);
+        boolean drawEyes = Debug.drawFOV || Debug.drawFOVWireFrame;
+        int reach = drawEyes ? Math.max(s.eyeReach, AGENT_REACH) : AGENT_REACH;
+        s.agentsIn(view.x - reach, view.y - reach, view.width + 2 * reach, view.height + 2 * reach, visibleAgents);
+
+        if (drawEyes) {
+            for (int k = 0; k < visibleAgents.size(); k++) {
+                drawFieldOfVision(g2d, s, visibleAgents.get(k));
+            }
         }
 
-        for (Agent agent : agentList) {
-            agent.draw(g2d);
+        for (int k = 0; k < visibleAgents.size(); k++) {
+            int i = visibleAgents.get(k);
+            drawAgent(g2d, s, i);
 
             if (Debug.drawHealthBar) {
                 //draw healthbars
-                agent.drawHealthBar(g2d);
+                drawHealthBar(g2d, s, i);
             }
 
         }
@@ -454,18 +306,147 @@ public final class EvolutionWorld extends JPanel implements Runnable, MouseListe
         g2d.dispose();
     }
 
+    private void drawAgent(Graphics2D g2d, RenderSnapshot s, int i) {
+        int size = s.agentSize[i];
+        //the spike can point anywhere
+        int extent = Math.max(size / 2, (int) (3 * size * s.agentSpike[i])) + 1;
+        if (!view.intersects(s.centerX(i) - extent, s.centerY(i) - extent, 2 * extent, 2 * extent)) {
+            return;
+        }
+        AffineTransform world = g2d.getTransform();
+
+        //affine transformation
+        g2d.translate(s.centerX(i), s.centerY(i));
+        g2d.rotate(Math.toRadians(s.agentAngle[i]));
+
+        //draw the agent
+        g2d.setColor(new Color(s.agentColor[i]));
+        g2d.drawLine(0, 0, (int) (3 * size * s.agentSpike[i]), 0);
+        g2d.fillOval(-size / 2, -size / 2, size, size);
+
+        //draw a boarder around the agent (makes the agent is more visible)
+        Color boarder = Debug.screenInv ? Color.WHITE : Color.BLACK;
+        g2d.setColor(boarder);
+        g2d.drawOval(-size / 2, -size / 2, size, size);
+
+        g2d.setTransform(world);
+    }
+
+    private void drawFieldOfVision(Graphics2D g2d, RenderSnapshot s, int i) {
+        for (int e = i * s.eyesPerAgent; e < (i + 1) * s.eyesPerAgent; e++) {
+            eyeArc.setArc(s.eyeX[e], s.eyeY[e], s.eyeDiameter[e], s.eyeDiameter[e],
+                    s.eyeStart[e], s.eyeExtent[e], Arc2D.PIE);
+            if (!eyeArc.intersects(view)) {
+                continue;
+            }
+
+            //a transparent fill (nothing in sight) is skipped
+            if (Debug.drawFOV && (s.eyeColor[e] >>> 24) != 0) {
+                //draw sensor
+                g2d.setColor(new Color(s.eyeColor[e], true));
+                g2d.fill(eyeArc);
+            }
+
+            if (Debug.drawFOVWireFrame) {
+                //draw outline
+                g2d.setColor(new Color(0.0f, 0.0f, 1.0f, 0.4f));
+                g2d.draw(eyeArc);
+            }
+        }
+    }
+
+    private void drawHealthBar(Graphics2D g2d, RenderSnapshot s, int i) {
+        int size = s.agentSize[i];
+        double x = s.agentX[i];
+        double y = s.agentY[i];
+        double lifePercent = s.agentLife[i];
+
+        final int HB_WIDTH = 50; //heath bar
+        final int HB_HEIGHT = 12;//heath bar
+
+        int offset = 20;
+        //the bar, and the debug text to the right of the agent
+        int textWidth = Debug.agentDebug ? 60 + AGENT_TEXT_WIDTH : 0;
+        if (!view.intersects((int) (-size + x + offset), (int) (-1 * size + y),
+                Math.max(HB_WIDTH, size - offset + textWidth), size + 35)) {
+            return;
+        }
+        Color boarder = Debug.screenInv ? Color.WHITE : Color.BLACK;
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect((int) (-size + x + offset), (int) (-1 * size + y), HB_WIDTH, HB_HEIGHT);
+        g2d.setColor(Color.GREEN);
+        g2d.fillRect((int) (-size + x + offset), (int) (-1 * size + y), (int) (lifePercent * HB_WIDTH), HB_HEIGHT);
+        g2d.setColor(boarder);
+        g2d.drawRect((int) (-size + x + offset), (int) (-1 * size + y), HB_WIDTH, HB_HEIGHT);
+
+        int offsetX = 60;
+        int offsetY = 10;
+        if (Debug.agentDebug) {
+            g2d.drawString("Life: " + (int) (100 * lifePercent) + "%", (int) (x + offsetX), (int) (y + offsetY));
+            g2d.drawString("Score: " + s.agentScore[i], (int) (x + offsetX), (int) (y + offsetY + 20));
+        }
+    }
+
+    //the activations of the target as rows of grey boxes below it: inputs,
+    //hidden and outputs
+    private void drawNeuralNetwork(Graphics2D g2d, RenderSnapshot s) {
+        RenderSnapshot.Brain brain = s.brain;
+        int boxSize = 20;
+
+        int left = (int) s.agentX[s.target] - 80;
+        int top = s.agentSize[s.target] + (int) s.agentY[s.target] + 25;
+        int[] rowStart = {0, brain.inputs, brain.inputs + brain.hidden};
+        int[] rowLength = {brain.inputs, brain.hidden, brain.outputs};
+        for (int row = 0; row < 3; row++) {
+            for (int i = 0; i < rowLength[row]; i++) {
+                int grey = (int) (brain.out[rowStart[row] + i] * 255);
+                g2d.setColor(new Color(grey, grey, grey));
+                g2d.fillRect(i * boxSize + left, top + row * boxSize, boxSize, boxSize);
+                g2d.setColor(Color.BLACK);
+                g2d.drawRect(i * boxSize + left, top + row * boxSize, boxSize, boxSize);
+            }
+        }
+    }
+
+    public boolean isTurbo() {
+        return control.isTurbo();
+    }
+
+    /**
+     * In turbo mode the simulation is no longer paced, instead as many ticks
+     * as fit in between two repaints are simulated.
+     *
+     * @param turbo true to run unbounded
+     */
+    public void setTurbo(boolean turbo) {
+        control.setTurbo(turbo);
+    }
+
     @Override
     public void run() {
+        final long FRAME_NANOS = 1000000000L / SimulationClock.TICKS_PER_SECOND;
         while (isRunning.get()) {
             try {
-                Thread.sleep(1000 / (60 * threadSpeed));
+                if (control.isTurbo()) {
+                    long frameEnd = System.nanoTime() + FRAME_NANOS;
+                    control.awaitTick();
+                    do {
+                        update();
+                    } while (System.nanoTime() < frameEnd && control.tryTick());
+
+                    //give the display a chance to paint
+                    Thread.sleep(1);
+                } else {
+                    control.pace();
+                    control.awaitTick();
+                    update();
+                }
 
             } catch (InterruptedException ex) {
                 Logger.getLogger(EvolutionWorld.class
                         .getName()).log(Level.SEVERE, null, ex);
             }
-            update();
-            repaint();
+            publish();
         }
     }
 
@@ -490,14 +471,12 @@ public final class EvolutionWorld extends JPanel implements Runnable, MouseListe
         dx += (int) (e.getX() / scale);
         dy += (int) (e.getY() / scale);
 
-        synchronized (this) {
-            for (Agent agent : agentList) {
-                if (agent.getBounds().contains(dx, dy)) {
-                    screenControls.followTarget(agent);
-                    //agent.startRecordingBrainActivity(brainActivity);
-                    break;
-                }
-            }
+        //pick from what is on the screen, not from the live world
+        RenderSnapshot s = snapshot;
+        Agent agent = s == null ? null : s.agentAt(dx, dy);
+        if (agent != null) {
+            screenControls.followTarget(agent);
+            //agent.startRecordingBrainActivity(brainActivity);
         }
     }
 
@@ -524,16 +503,19 @@ public final class EvolutionWorld extends JPanel implements Runnable, MouseListe
     @Override
     public void keyReleased(KeyEvent ke) {
         if (ke.getKeyCode() == KeyEvent.VK_RIGHT) {
-            if (threadSpeed < 10) {
-                threadSpeed++;
+            if (control.getSpeed() < 10) {
+                control.setSpeed(control.getSpeed() + 1);
             }
         }
         if (ke.getKeyCode() == KeyEvent.VK_LEFT) {
             //prevents division by zero
-            if (threadSpeed > 1) {
-                threadSpeed--;
+            if (control.getSpeed() > 1) {
+                control.setSpeed(control.getSpeed() - 1);
             }
         }
+        if (ke.getKeyCode() == KeyEvent.VK_T) {
+            control.setTurbo(!control.isTurbo());
+        }
     }
 
 }
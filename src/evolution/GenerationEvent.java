@@ -0,0 +1,40 @@
+package evolution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a generation boundary, its duration is the time
+ * startNextGeneration() took to breed the new generation. Off unless enabled
+ * by a recording, see jfr/evolution.jfc.
+ */
+@Name("evolution.Generation")
+@Label("Generation")
+@Description("A new generation was bred")
+@Category({"EvolutionWorld", "Simulation"})
+@Enabled(false)
+final class GenerationEvent extends Event {
+
+    @Label("Generations Completed")
+    long generation;
+
+    @Label("Population")
+    @Description("Agents of the new generation")
+    int population;
+
+    @Label("Top Score")
+    @Description("Highest score of the finished generation")
+    int topScore;
+
+    @Label("Top Four Average")
+    @Description("Average score of the best four agents of the finished generation")
+    double topAverage;
+
+    @Label("Food")
+    @Description("Food items after restocking")
+    int food;
+}
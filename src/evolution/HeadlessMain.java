@@ -0,0 +1,265 @@
+package evolution;
+
+import neural.NetworkBatch;
+import selection.RankSelection;
+import selection.SelectionStrategy;
+import selection.TopKSelection;
+import selection.TournamentSelection;
+import util.FastMath;
+
+/**
+ * Runs the simulation without any user interface. The engine is stepped as
+ * fast as the CPU allows and the tick rate is printed periodically, which makes
+ * it possible to evolve thousands of generations on machines without a display.
+ *
+ * Usage: HeadlessMain [--generations N] [--report-seconds S] [--score-prefix P]
+ *                     [--agent-store] [--batched] [--vector] [--threads N]
+ *                     [--fast-math]
+ *                     [--islands N] [--topology ring|full]
+ *                     [--epoch-generations K] [--migrants M] [--seed S]
+ *                     [--selection topk|tournament[:size]|rank[:pressure]]
+ *                     [--elites N] [--offspring N]
+ *                     [--target-tps T] [--min-agents N] [--max-agents N]
+ *                     [--profile]
+ *
+ * The seed is printed at the start, running again with the same seed and
+ * options repeats the run exactly.
+ *
+ * A single world is registered as the MBean
+ * evolution:type=SimulationControl,name=headless, so the run can be watched,
+ * paused, stepped and tuned with jconsole (see SimulationControl). It runs in
+ * turbo mode, switching turbo off paces it like the GUI.
+ *
+ * With --vector the batched inference (--batched) uses the SIMD kernel of
+ * NetworkBatch. It needs a JVM started with --add-modules
+ * jdk.incubator.vector, otherwise a warning is printed and the scalar loops
+ * are used.
+ *
+ * With --profile the per phase timings of the TickProfiler are printed with
+ * every report and at the end.
+ *
+ * With --target-tps the population (and the food along with it) is resized
+ * between generations to hold the given tick rate, see PopulationController.
+ * Every change is logged. This is only available with a single island.
+ *
+ * With more than one island the worlds are evolved by an IslandRunner and a
+ * line per epoch is printed instead of the periodic tick rate.
+ */
+public class HeadlessMain {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String args[]) throws InterruptedException {
+
+        long generations = Long.MAX_VALUE;
+        double reportSeconds = 5;
+        String scorePrefix = null;
+        boolean agentStore = false;
+        boolean batched = false;
+        int threads = 1;
+        int islands = 1;
+        IslandRunner.Topology topology = IslandRunner.Topology.RING;
+        int epochGenerations = 5;
+        int migrants = 2;
+        long seed = System.currentTimeMillis();
+        SelectionStrategy selection = new TopKSelection();
+        int elites = 3;
+        int offspring = 1;
+        double targetTps = 0;
+        int minAgents = 5;
+        int maxAgents = 5000;
+        boolean profile = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--generations":
+                    generations = Long.parseLong(args[++i]);
+                    break;
+                case "--report-seconds":
+                    reportSeconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--score-prefix":
+                    scorePrefix = args[++i];
+                    break;
+                case "--agent-store":
+                    agentStore = true;
+                    break;
+                case "--batched":
+                    batched = true;
+                    break;
+                case "--vector":
+                    if (!NetworkBatch.setVectorKernelEnabled(true)) {
+                        System.err.println("The vector kernel is not available, run with"
+                                + " --add-modules jdk.incubator.vector");
+                    }
+                    break;
+                case "--fast-math":
+                    FastMath.setEnabled(true);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--islands":
+                    islands = Integer.parseInt(args[++i]);
+                    break;
+                case "--topology":
+                    topology = IslandRunner.Topology.valueOf(args[++i].toUpperCase());
+                    break;
+                case "--epoch-generations":
+                    epochGenerations = Integer.parseInt(args[++i]);
+                    break;
+                case "--migrants":
+                    migrants = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--selection":
+                    selection = parseSelection(args[++i]);
+                    break;
+                case "--elites":
+                    elites = Integer.parseInt(args[++i]);
+                    break;
+                case "--offspring":
+                    offspring = Integer.parseInt(args[++i]);
+                    break;
+                case "--target-tps":
+                    targetTps = Double.parseDouble(args[++i]);
+                    break;
+                case "--min-agents":
+                    minAgents = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-agents":
+                    maxAgents = Integer.parseInt(args[++i]);
+                    break;
+                case "--profile":
+                    profile = true;
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.err.println("Usage: HeadlessMain [--generations N]"
+                            + " [--report-seconds S] [--score-prefix P]"
+                            + " [--agent-store] [--batched] [--vector] [--threads N] [--fast-math]"
+                            + " [--islands N] [--topology ring|full]"
+                            + " [--epoch-generations K] [--migrants M] [--seed S]"
+                            + " [--selection topk|tournament[:size]|rank[:pressure]]"
+                            + " [--elites N] [--offspring N]"
+                            + " [--target-tps T] [--min-agents N] [--max-agents N]"
+                            + " [--profile]");
+                    System.exit(1);
+            }
+        }
+
+        System.out.println("seed " + seed);
+
+        if (islands > 1 && targetTps > 0) {
+            System.err.println("--target-tps needs a single island");
+            System.exit(1);
+        }
+
+        if (islands > 1) {
+            IslandRunner runner = new IslandRunner(islands, topology, epochGenerations, migrants, seed);
+            for (int i = 0; i < islands; i++) {
+                SimulationEngine engine = runner.getIsland(i);
+                engine.setScoreFilePrefix(scorePrefix == null ? null : scorePrefix + "island" + i + "_");
+                engine.setAgentStoreEnabled(agentStore);
+                engine.setBatchedInference(batched);
+                engine.setThreads(threads);
+                engine.setSelection(selection, elites, offspring);
+            }
+            runIslands(runner, generations);
+            return;
+        }
+
+        SimulationEngine engine = new SimulationEngine(seed);
+        engine.setScoreFilePrefix(scorePrefix);
+        engine.setAgentStoreEnabled(agentStore);
+        engine.setBatchedInference(batched);
+        engine.setThreads(threads);
+        engine.setSelection(selection, elites, offspring);
+        engine.getProfiler().setEnabled(profile);
+        PopulationController controller = targetTps > 0
+                ? new PopulationController(engine, targetTps, minAgents, maxAgents)
+                : null;
+        SimulationControl control = new SimulationControl(engine);
+        control.setTurbo(true);
+        control.register("headless");
+
+        long reportPeriod = (long) (reportSeconds * 1e9);
+        long start = System.nanoTime();
+        long lastReport = start;
+        long ticks = 0;
+        long lastTicks = 0;
+
+        while (engine.getGenerationsCompleted() < generations) {
+            control.awaitTick();
+            control.pace();
+            if (controller != null) {
+                long t = System.nanoTime();
+                controller.step();
+                control.ticked(System.nanoTime() - t);
+            } else {
+                control.update();
+            }
+            ticks++;
+
+            long now = System.nanoTime();
+            if (now - lastReport >= reportPeriod) {
+                double tps = (ticks - lastTicks) / ((now - lastReport) / 1e9);
+                System.out.printf("generation %d  ticks %d  ticks/sec %.0f  agents %d%n",
+                        engine.getGenerationsCompleted() + 1, ticks, tps, engine.getAgents().size());
+                if (profile) {
+                    System.out.print(engine.getProfiler().report());
+                }
+                lastReport = now;
+                lastTicks = ticks;
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("finished %d generations, %d ticks in %.1f s (%.0f ticks/sec)%n",
+                engine.getGenerationsCompleted(), ticks, seconds, ticks / seconds);
+        if (profile) {
+            System.out.print(engine.getProfiler().report());
+        }
+        engine.shutdown();
+    }
+
+    private static SelectionStrategy parseSelection(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "topk":
+                return new TopKSelection();
+            case "tournament":
+                return new TournamentSelection(parts.length > 1 ? Integer.parseInt(parts[1]) : 3);
+            case "rank":
+                return new RankSelection(parts.length > 1 ? Double.parseDouble(parts[1]) : 1.5);
+            default:
+                throw new IllegalArgumentException("Unknown selection " + spec);
+        }
+    }
+
+    private static void runIslands(IslandRunner runner, long generations) {
+        long start = System.nanoTime();
+        long ticks = 0;
+
+        while (runner.getIsland(0).getGenerationsCompleted() < generations) {
+            ticks += runner.runEpoch();
+
+            StringBuilder scores = new StringBuilder();
+            for (int i = 0; i < runner.getIslandCount(); i++) {
+                scores.append(' ').append(runner.getIsland(i).getLastTopScore());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("epoch %d  generation %d  ticks/sec %.0f  top scores%s%n",
+                    runner.getEpochs(), runner.getIsland(0).getGenerationsCompleted(),
+                    ticks / seconds, scores);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("finished %d epochs on %d islands, %d ticks in %.1f s (%.0f ticks/sec)%n",
+                runner.getEpochs(), runner.getIslandCount(), ticks, seconds, ticks / seconds);
+        runner.close();
+    }
+}
@@ -0,0 +1,160 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import worldObject.Agent;
+
+/**
+ * Island model evolution: several independent worlds evolve side by side, one
+ * thread each, and every few generations the best agents of each world are
+ * copied over to its neighbours.
+ *
+ * The run is divided into epochs. During an epoch every island is stepped on
+ * its own thread until it has completed the given number of generations. The
+ * islands are then at a generation boundary and migration happens on the
+ * calling thread: every island hands out clones of the agents its selection
+ * strategy picks from its last generation (see SimulationEngine.emigrants),
+ * and those replace the randomly created newcomers of the destination
+ * islands.
+ */
+public final class IslandRunner {
+
+    /**
+     * Where the migrants of an island go
+     */
+    public enum Topology {
+        //island i sends to island i + 1, the last one to the first
+        RING,
+        //every island sends to every other island
+        FULL
+    }
+
+    private final SimulationEngine[] islands;
+    private final Topology topology;
+    private final int generationsPerEpoch;
+    private final int migrants;
+    private final ExecutorService pool;
+    private long epochs = 0;
+
+    /**
+     * @param islands number of worlds
+     * @param topology where migrants are sent
+     * @param generationsPerEpoch generations between two migrations
+     * @param migrants number of agents each island sends to each destination
+     * @param seed the seeds of the islands are derived from this, so the
+     * whole run can be repeated
+     */
+    public IslandRunner(int islands, Topology topology, int generationsPerEpoch, int migrants, long seed) {
+        if (islands < 1 || generationsPerEpoch < 1 || migrants < 0) {
+            throw new IllegalArgumentException("Invalid island configuration");
+        }
+        SplittableRandom seeds = new SplittableRandom(seed);
+        this.islands = new SimulationEngine[islands];
+        for (int i = 0; i < islands; i++) {
+            this.islands[i] = new SimulationEngine(seeds.nextLong());
+        }
+        this.topology = topology;
+        this.generationsPerEpoch = generationsPerEpoch;
+        this.migrants = migrants;
+        this.pool = Executors.newFixedThreadPool(islands, r -> {
+            Thread t = new Thread(r, "island");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public SimulationEngine getIsland(int i) {
+        return islands[i];
+    }
+
+    public int getIslandCount() {
+        return islands.length;
+    }
+
+    public long getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * Evolves all islands for one epoch and then migrates
+     *
+     * @return the number of ticks all islands took together
+     */
+    public long runEpoch() {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (SimulationEngine engine : islands) {
+            final long target = engine.getGenerationsCompleted() + generationsPerEpoch;
+            tasks.add(() -> {
+                long ticks = 0;
+                while (engine.getGenerationsCompleted() < target) {
+                    engine.update();
+                    ticks++;
+                }
+                return ticks;
+            });
+        }
+
+        long ticks = 0;
+        try {
+            for (Future<Long> f : pool.invokeAll(tasks)) {
+                ticks += f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evolving the islands", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("An island failed", ex.getCause());
+        }
+
+        migrate();
+        epochs++;
+        return ticks;
+    }
+
+    //all emigrants are taken before any island receives some, so nobody
+    //passes on an agent it has just received
+    private void migrate() {
+        int n = islands.length;
+        if (n < 2 || migrants == 0) {
+            return;
+        }
+
+        List<List<Agent>> incoming = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            incoming.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < n; i++) {
+            switch (topology) {
+                case RING:
+                    incoming.get((i + 1) % n).addAll(islands[i].emigrants(migrants));
+                    break;
+                case FULL:
+                    for (int j = 0; j < n; j++) {
+                        if (j != i) {
+                            incoming.get(j).addAll(islands[i].emigrants(migrants));
+                        }
+                    }
+                    break;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            islands[i].immigrate(incoming.get(i));
+        }
+    }
+
+    //stops all threads, the islands can not be run afterwards
+    public void close() {
+        pool.shutdown();
+        for (SimulationEngine engine : islands) {
+            engine.shutdown();
+        }
+    }
+}
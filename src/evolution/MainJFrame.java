@@ -8,7 +8,6 @@ package evolution;
 import java.awt.event.KeyEvent;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import worldObject.Agent;
 
 /**
  *
@@ -549,11 +548,11 @@ public class MainJFrame extends javax.swing.JFrame implements Runnable {
 
             try {
                 Thread.sleep(1000 / 25);
-                Agent a = ((EvolutionWorld) jPanel_simulation).getTargetAgent();
-                if (a != null) {
-                    ((NeuralNetPanel) jPanel_NeuralNet).setNeuralNetwork(a.neuralNet);
+                RenderSnapshot s = ((EvolutionWorld) jPanel_simulation).getSnapshot();
+                if (s != null) {
+                    ((NeuralNetPanel) jPanel_NeuralNet).setBrain(s.brain);
                 } else {
-                    ((NeuralNetPanel) jPanel_NeuralNet).setNeuralNetwork(null);
+                    ((NeuralNetPanel) jPanel_NeuralNet).setBrain(null);
                 }
             } catch (InterruptedException ex) {
                 Logger.getLogger(MainJFrame.class.getName()).log(Level.SEVERE, null, ex);
@@ -5,13 +5,13 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JPanel;
-import neural.NeuralNetwork;
-import neural.Neuron;
 
 public class NeuralNetPanel extends JPanel implements Runnable {
 
     AtomicBoolean isRunning;
-    NeuralNetwork neuralNet = null;
+    //a copy of the target's network (see RenderSnapshot), the live network
+    //is never read from here
+    volatile RenderSnapshot.Brain brain = null;
     Color color = null;
     Node[] node = null;
 
@@ -20,31 +20,32 @@ public class NeuralNetPanel extends JPanel implements Runnable {
         (new Thread(this)).start();
     }
 
-    public void setNeuralNetwork(NeuralNetwork neuralNet) {
+    void setBrain(RenderSnapshot.Brain brain) {
         synchronized (this) {
-            this.neuralNet = neuralNet;
+            this.brain = brain;
             setup();
         }
 
     }
 
     public void setup() {
+        RenderSnapshot.Brain neuralNet = brain;
         if (neuralNet != null) {
-            node = new Node[neuralNet.GENES];
+            node = new Node[neuralNet.genes()];
 
             //----------------------------------------------------
             final int size = 25;
 
             //INPUT LAYER
-            for (int i = 0; i < neuralNet.INPUTS; i++) {
-                float alpha = (float) neuralNet.getNeurons()[i].getOut();
+            for (int i = 0; i < neuralNet.inputs; i++) {
+                float alpha = (float) neuralNet.out[i];
                 color = new Color(0.0f, 0.0f, 1.0f, alpha);
                 node[i] = new Node(30 - (size / 2), 30 + 25 * i - (size / 2), color);
             }
 
             //HIDDEN LAYER
-            double angle = 360.0 / neuralNet.HIDDEN;
-            for (int i = 0; i < neuralNet.HIDDEN; i++) {
+            double angle = 360.0 / neuralNet.hidden;
+            for (int i = 0; i < neuralNet.hidden; i++) {
 
                 double x = Math.sin(Math.toRadians(angle * i));
                 double y = Math.cos(Math.toRadians(angle * i));
@@ -55,17 +56,17 @@ public class NeuralNetPanel extends JPanel implements Runnable {
                 x += 200;
                 y += 200;
 
-                float alpha = (float) neuralNet.getNeurons()[neuralNet.INPUTS + i].getOut();
+                float alpha = (float) neuralNet.out[neuralNet.inputs + i];
                 color = new Color(0.0f, 0.0f, 1.0f, alpha);
-                node[neuralNet.INPUTS + i] = new Node((int) x - (size / 2), (int) y - (size / 2), color);
+                node[neuralNet.inputs + i] = new Node((int) x - (size / 2), (int) y - (size / 2), color);
 
             }
 
             //OUTPUT LAYER
-            for (int i = 0; i < neuralNet.OUTPUTS; i++) {
-                float alpha = (float) neuralNet.getNeurons()[(neuralNet.INPUTS + neuralNet.HIDDEN) + i].getOut();
+            for (int i = 0; i < neuralNet.outputs; i++) {
+                float alpha = (float) neuralNet.out[(neuralNet.inputs + neuralNet.hidden) + i];
                 color = new Color(0.0f, 0.0f, 1.0f, alpha);
-                node[neuralNet.INPUTS + neuralNet.HIDDEN + i] = new Node(370 - (size / 2), 30 + 30 * i - (size / 2), color);
+                node[neuralNet.inputs + neuralNet.hidden + i] = new Node(370 - (size / 2), 30 + 30 * i - (size / 2), color);
             }
         }
     }
@@ -83,19 +84,20 @@ public class NeuralNetPanel extends JPanel implements Runnable {
 
             g2d.scale(0.7, 0.7);
 
+            RenderSnapshot.Brain neuralNet = brain;
             if (neuralNet != null) {
                 
                 final int yOffset = 80;
 
                 //CONNECTIONS
-                for (int i = neuralNet.INPUTS; i < neuralNet.GENES; i++) {
-                    Neuron neuron = neuralNet.getNeurons()[i];
-                    for (int j = 0; j < neuron.inIdx.length; j++) {
+                for (int i = neuralNet.inputs; i < neuralNet.genes(); i++) {
+                    int[] inIdx = neuralNet.inIdx[i];
+                    for (int j = 0; j < inIdx.length; j++) {
                         g2d.setColor(Color.WHITE);
                         int x1 = node[i].x;
                         int y1 = node[i].y;
-                        int x2 = node[neuron.inIdx[j]].x;
-                        int y2 = node[neuron.inIdx[j]].y;
+                        int x2 = node[inIdx[j]].x;
+                        int y2 = node[inIdx[j]].y;
                         g2d.drawLine(x1, y1+yOffset, x2, y2+yOffset);
                     }
                 }
@@ -105,8 +107,8 @@ public class NeuralNetPanel extends JPanel implements Runnable {
                 
 
                 //INPUT LAYER
-                for (int i = 0; i < neuralNet.INPUTS; i++) {
-                    float alpha = (float) neuralNet.getNeurons()[i].getOut();
+                for (int i = 0; i < neuralNet.inputs; i++) {
+                    float alpha = (float) neuralNet.out[i];
                     color = new Color(0.0f, 0.0f, 1.0f, alpha);
 
                     g2d.setColor(Color.BLACK);
@@ -120,11 +122,11 @@ public class NeuralNetPanel extends JPanel implements Runnable {
                 }
 
                 //HIDDEN LAYER
-                double angle = 360.0 / neuralNet.HIDDEN;
-                for (int i = 0; i < neuralNet.HIDDEN; i++) {
-                    float alpha = (float) neuralNet.getNeurons()[neuralNet.INPUTS + i].getOut();
+                double angle = 360.0 / neuralNet.hidden;
+                for (int i = 0; i < neuralNet.hidden; i++) {
+                    float alpha = (float) neuralNet.out[neuralNet.inputs + i];
                     color = new Color(0.0f, 0.0f, 1.0f, alpha);
-                    int offset = i + neuralNet.INPUTS;
+                    int offset = i + neuralNet.inputs;
 
                     Node _node = node[offset];
                     g2d.setColor(Color.BLACK);
@@ -138,11 +140,11 @@ public class NeuralNetPanel extends JPanel implements Runnable {
                 }
 
                 //OUTPUT LAYER
-                for (int i = 0; i < neuralNet.OUTPUTS; i++) {
+                for (int i = 0; i < neuralNet.outputs; i++) {
 
-                    float alpha = (float) neuralNet.getNeurons()[(neuralNet.INPUTS + neuralNet.HIDDEN) + i].getOut();
+                    float alpha = (float) neuralNet.out[(neuralNet.inputs + neuralNet.hidden) + i];
                     color = new Color(0.0f, 0.0f, 1.0f, alpha);
-                    int offset = i + neuralNet.INPUTS + neuralNet.HIDDEN;
+                    int offset = i + neuralNet.inputs + neuralNet.hidden;
 
                     g2d.setColor(Color.BLACK);
                     g2d.fillOval(node[offset].x(), node[offset].y()+yOffset, node[offset].size, node[offset].size);
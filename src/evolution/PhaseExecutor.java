@@ -0,0 +1,105 @@
+package evolution;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the per agent phases of a tick, either serially on the calling thread
+ * or split over a ForkJoinPool. A phase body may only touch the state of the
+ * index it is given (and read anything nobody writes during the phase), which
+ * makes the results independent of the number of threads.
+ */
+public final class PhaseExecutor {
+
+    //split ranges into about this many tasks per thread
+    private final int TASKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    /**
+     * @param threads number of worker threads, 1 or less runs everything
+     * on the calling thread
+     */
+    public PhaseExecutor(int threads) {
+        this.parallelism = Math.max(1, threads);
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Calls body for every index from 0 up to n and returns once all calls
+     * are done
+     *
+     * @param n number of indices
+     * @param body the phase, must only modify state owned by its index
+     */
+    public void forEach(int n, IntConsumer body) {
+        if (pool == null || n < 2) {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        int grain = Math.max(1, n / (parallelism * TASKS_PER_THREAD));
+        pool.invoke(new RangeTask(0, n, grain, body));
+    }
+
+    /**
+     * Splits 0 up to n into contiguous chunks and calls body(from, to) for
+     * each of them
+     *
+     * @param n number of indices
+     * @param body the phase, must only modify state owned by its range
+     */
+    public void forChunks(int n, ChunkBody body) {
+        final int chunks = Math.min(n, parallelism * TASKS_PER_THREAD);
+        forEach(chunks, c -> body.accept(
+                (int) ((long) c * n / chunks), (int) ((long) (c + 1) * n / chunks)));
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public interface ChunkBody {
+
+        void accept(int from, int to);
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IntConsumer body;
+
+        RangeTask(int from, int to, int grain, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, grain, body),
+                    new RangeTask(mid, to, grain, body));
+        }
+    }
+}
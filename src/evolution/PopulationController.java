@@ -0,0 +1,143 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Holds a target tick rate on whatever hardware the simulation runs on by
+ * resizing the population between generations (see
+ * SimulationEngine.setPopulationSize, the food is scaled along so the food per
+ * agent stays the same).
+ *
+ * The engine is stepped through step(), which measures the wall clock time of
+ * every tick. Right before a generation ends the tick rate of the ending
+ * generation is compared to the target. The cost of a tick is assumed to grow
+ * linearly with the population, so the population is multiplied by the ratio
+ * of the measured and the target rate. To damp the noise of a single
+ * generation only half of that step (on a log scale) is taken, at most a factor
+ * of MAX_STEP per generation, and rates within TOLERANCE of the target
+ * leave the population alone.
+ *
+ * Every adjustment is logged and kept (see getAdjustments), so the population
+ * size of every generation can be told from the output of a run.
+ */
+public final class PopulationController {
+
+    private static final Logger LOG = Logger.getLogger(PopulationController.class.getName());
+
+    private static final double TOLERANCE = 0.1;
+    private static final double MAX_STEP = 2;
+
+    private final SimulationEngine engine;
+    //wall clock in nanoseconds
+    private final LongSupplier clock;
+    private final double targetTicksPerSecond;
+    private final int minAgents;
+    private final int maxAgents;
+
+    //ticks and time of the generation being measured
+    private long ticks = 0;
+    private long nanos = 0;
+
+    private final List<Adjustment> adjustments = new ArrayList<>();
+
+    /**
+     * One change of the population size
+     */
+    public static final class Adjustment {
+
+        //the first generation with the new size
+        public final long generation;
+        public final double measuredTicksPerSecond;
+        public final int oldAgents;
+        public final int newAgents;
+
+        Adjustment(long generation, double measuredTicksPerSecond, int oldAgents, int newAgents) {
+            this.generation = generation;
+            this.measuredTicksPerSecond = measuredTicksPerSecond;
+            this.oldAgents = oldAgents;
+            this.newAgents = newAgents;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("generation %d: %.0f ticks/sec, population %d -> %d",
+                    generation, measuredTicksPerSecond, oldAgents, newAgents);
+        }
+    }
+
+    /**
+     * @param engine the engine to control, must only be stepped through this
+     * controller
+     * @param targetTicksPerSecond tick rate to hold
+     * @param minAgents smallest population allowed
+     * @param maxAgents largest population allowed
+     */
+    public PopulationController(SimulationEngine engine, double targetTicksPerSecond, int minAgents, int maxAgents) {
+        this(engine, targetTicksPerSecond, minAgents, maxAgents, System::nanoTime);
+    }
+
+    //with a clock other than System.nanoTime, for tests
+    PopulationController(SimulationEngine engine, double targetTicksPerSecond, int minAgents, int maxAgents,
+            LongSupplier clock) {
+        if (targetTicksPerSecond <= 0 || minAgents < 1 || maxAgents < minAgents) {
+            throw new IllegalArgumentException("Invalid population controller configuration");
+        }
+        this.engine = engine;
+        this.clock = clock;
+        this.targetTicksPerSecond = targetTicksPerSecond;
+        this.minAgents = minAgents;
+        this.maxAgents = maxAgents;
+    }
+
+    /**
+     * Advances the engine by one tick, resizing the population first if this
+     * tick starts a new generation
+     */
+    public void step() {
+        if (engine.getNextGenTimer() <= 1 && ticks > 0) {
+            adjust();
+        }
+
+        long start = clock.getAsLong();
+        engine.update();
+        nanos += clock.getAsLong() - start;
+        ticks++;
+    }
+
+    private void adjust() {
+        double measured = ticks / (nanos / 1e9);
+        ticks = 0;
+        nanos = 0;
+
+        double ratio = measured / targetTicksPerSecond;
+        if (Math.abs(ratio - 1) <= TOLERANCE) {
+            return;
+        }
+
+        int oldAgents = engine.getPopulationSize();
+        double factor = Math.max(1 / MAX_STEP, Math.min(MAX_STEP, Math.sqrt(ratio)));
+        int newAgents = (int) Math.round(oldAgents * factor);
+        newAgents = Math.max(minAgents, Math.min(maxAgents, newAgents));
+        if (newAgents == oldAgents) {
+            return;
+        }
+
+        engine.setPopulationSize(newAgents);
+        //the generation that is about to end is getGenerationsCompleted() + 1
+        Adjustment a = new Adjustment(engine.getGenerationsCompleted() + 2, measured, oldAgents, newAgents);
+        adjustments.add(a);
+        LOG.info("Population adjusted at " + a);
+    }
+
+    public List<Adjustment> getAdjustments() {
+        return Collections.unmodifiableList(adjustments);
+    }
+
+    public double getTargetTicksPerSecond() {
+        return targetTicksPerSecond;
+    }
+}
@@ -0,0 +1,290 @@
+package evolution;
+
+import java.awt.geom.Arc2D;
+import java.util.Arrays;
+import java.util.List;
+import neural.Neuron;
+import sensor.Sensor;
+import spatial.IndexBuffer;
+import spatial.SpatialGrid;
+import worldObject.Agent;
+import worldObject.Food;
+import worldObject.FoodField;
+
+/**
+ * Everything the display needs of one tick, copied out of the engine so the
+ * world can be painted without holding the engine lock.
+ *
+ * A snapshot is built on the simulation thread while it holds the lock (see
+ * SimulationEngine.snapshot) and never changes afterwards. It is handed to the
+ * event dispatch thread through a single volatile field, which makes all of
+ * its arrays visible there. The agents are only kept as references so a click
+ * can be turned into a target, their state must not be read from the snapshot
+ * side.
+ *
+ * So a zoomed in frame does not have to look at the whole world, the agents
+ * are indexed by a uniform grid and the food is kept in lattice cell order,
+ * see agentsIn and foodIn.
+ */
+final class RenderSnapshot {
+
+    /**
+     * The activations and the connections of the target's network
+     */
+    static final class Brain {
+
+        final int inputs;
+        final int hidden;
+        final int outputs;
+        //clamped output of every neuron
+        final double[] out;
+        //the neurons every neuron reads from
+        final int[][] inIdx;
+
+        Brain(Agent agent) {
+            inputs = agent.neuralNet.INPUTS;
+            hidden = agent.neuralNet.HIDDEN;
+            outputs = agent.neuralNet.OUTPUTS;
+            Neuron[] neurons = agent.neuralNet.getNeurons();
+            out = new double[neurons.length];
+            inIdx = new int[neurons.length][];
+            for (int i = 0; i < neurons.length; i++) {
+                out[i] = neurons[i].getOut();
+                inIdx[i] = neurons[i].inIdx.clone();
+            }
+        }
+
+        int genes() {
+            return out.length;
+        }
+    }
+
+    final int generation;
+    final long nextGenTimer;
+    //lines of the tick profiler for the HUD, may be a few frames old
+    final List<String> profile;
+
+    //agents, top left corner and size of the bounds
+    final int agentCount;
+    final Agent[] agents;
+    final double[] agentX;
+    final double[] agentY;
+    final int[] agentSize;
+    final double[] agentAngle;
+    final int[] agentColor;
+    final double[] agentLife;
+    final double[] agentSpike;
+    final int[] agentScore;
+
+    //eyes of agent i are eyesPerAgent * i and on, the arc is given like for
+    //Arc2D (bounding square and angles in degrees), the fill as ARGB
+    final int eyesPerAgent;
+    final int[] eyeX;
+    final int[] eyeY;
+    final int[] eyeDiameter;
+    final int[] eyeStart;
+    final int[] eyeExtent;
+    final int[] eyeColor;
+    //how far an eye reaches from the top left corner of its agent
+    final int eyeReach;
+
+    //agents bucketed by their top left corner, never rebuilt
+    private final SpatialGrid agentGrid;
+
+    //food, top left corner (the size is Food.SIZE), in the order of the
+    //lattice cells, see foodIn
+    private static final int FOOD_COLS = SimulationEngine.BORDER_SIZE / Food.SIZE;
+    final int foodCount;
+    private final int[] foodCell;
+    final int[] foodX;
+    final int[] foodY;
+    final double[] foodLife;
+
+    //index of the target in the agents, -1 if it is not alive
+    final int target;
+    final Brain brain;
+
+    /**
+     * Copies the world, the caller must hold the lock on the engine
+     *
+     * @param engine the engine
+     * @param target agent followed by the camera, may be null
+     * @param profile lines of the tick profiler, not copied so they must not
+     * change afterwards
+     */
+    RenderSnapshot(SimulationEngine engine, Agent target, List<String> profile) {
+        generation = engine.getGeneration();
+        nextGenTimer = engine.getNextGenTimer();
+        this.profile = profile;
+
+        agentCount = engine.getAgents().size();
+        agents = engine.getAgents().toArray(new Agent[agentCount]);
+        agentX = new double[agentCount];
+        agentY = new double[agentCount];
+        agentSize = new int[agentCount];
+        agentAngle = new double[agentCount];
+        agentColor = new int[agentCount];
+        agentLife = new double[agentCount];
+        agentSpike = new double[agentCount];
+        agentScore = new int[agentCount];
+
+        eyesPerAgent = agentCount == 0 ? 0 : agents[0].getEyes().length;
+        int eyes = agentCount * eyesPerAgent;
+        eyeX = new int[eyes];
+        eyeY = new int[eyes];
+        eyeDiameter = new int[eyes];
+        eyeStart = new int[eyes];
+        eyeExtent = new int[eyes];
+        eyeColor = new int[eyes];
+
+        int targetIndex = -1;
+        int reach = 0;
+        for (int i = 0; i < agentCount; i++) {
+            Agent a = agents[i];
+            agentX[i] = a.getX();
+            agentY[i] = a.getY();
+            agentSize[i] = (int) a.getSize();
+            agentAngle[i] = a.getAngle();
+            agentColor[i] = a.getColor().getRGB();
+            agentLife[i] = a.getLife();
+            agentSpike[i] = a.spikePercent;
+            agentScore[i] = a.score;
+            if (a == target) {
+                targetIndex = i;
+            }
+
+            Sensor[] sensors = a.getEyes();
+            for (int j = 0; j < eyesPerAgent; j++) {
+                int e = i * eyesPerAgent + j;
+                Arc2D arc = (Arc2D) sensors[j].getSensor();
+                eyeX[e] = (int) arc.getX();
+                eyeY[e] = (int) arc.getY();
+                eyeDiameter[e] = (int) arc.getWidth();
+                eyeStart[e] = (int) arc.getAngleStart();
+                eyeExtent[e] = (int) arc.getAngleExtent();
+                eyeColor[e] = sensors[j].getColor();
+                reach = Math.max(reach, eyeDiameter[e] / 2 + agentSize[i]);
+            }
+        }
+        this.target = targetIndex;
+        eyeReach = reach;
+        agentGrid = new SpatialGrid(SimulationEngine.BORDER_SIZE, Agent.SIZE);
+        agentGrid.build(engine.getAgents());
+        brain = targetIndex < 0 ? null : new Brain(target);
+
+        FoodField field = engine.getFood();
+        foodCount = field.size();
+        foodX = new int[foodCount];
+        foodY = new int[foodCount];
+        foodLife = new double[foodCount];
+        foodCell = new int[foodCount];
+        //the field iterates in row major order, so the cells come out sorted
+        int i = 0;
+        for (Food f : field) {
+            foodX[i] = (int) f.getX();
+            foodY[i] = (int) f.getY();
+            foodCell[i] = (foodY[i] / Food.SIZE) * FOOD_COLS + foodX[i] / Food.SIZE;
+            foodLife[i] = f.getFoodPercent();
+            i++;
+        }
+    }
+
+    /**
+     * Collects the agents whose top left corner is near the rectangle, a
+     * superset of the agents whose bounds intersect it. To find everything
+     * drawn for an agent (eyes, health bar) grow the rectangle by how far
+     * that reaches.
+     *
+     * @param x left edge
+     * @param y top edge
+     * @param width width
+     * @param height height
+     * @param out receives the agent indices in ascending order
+     */
+    void agentsIn(int x, int y, int width, int height, IndexBuffer out) {
+        agentGrid.query(x, y, width, height, out);
+    }
+
+    /**
+     * Collects the food intersecting the rectangle (same test as
+     * FoodField.query), the lattice rows it covers are looked up by binary
+     * search
+     *
+     * @param x left edge
+     * @param y top edge
+     * @param width width
+     * @param height height
+     * @param out receives the food indices in ascending order, cleared first
+     */
+    void foodIn(int x, int y, int width, int height, IndexBuffer out) {
+        out.clear();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int c0 = Math.max(0, Math.floorDiv(x - Food.SIZE, Food.SIZE) + 1);
+        int c1 = Math.min(FOOD_COLS - 1, Math.floorDiv(x + width - 1, Food.SIZE));
+        int r0 = Math.max(0, Math.floorDiv(y - Food.SIZE, Food.SIZE) + 1);
+        int r1 = Math.min(FOOD_COLS - 1, Math.floorDiv(y + height - 1, Food.SIZE));
+        if (c0 > c1) {
+            return;
+        }
+        for (int r = r0; r <= r1; r++) {
+            int end = r * FOOD_COLS + c1;
+            for (int i = firstFoodAt(r * FOOD_COLS + c0); i < foodCount && foodCell[i] <= end; i++) {
+                out.add(i);
+            }
+        }
+    }
+
+    //index of the first food in a cell at or after the given one
+    private int firstFoodAt(int cell) {
+        int lo = 0;
+        int hi = foodCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (foodCell[mid] < cell) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    //scores of all agents, highest first
+    int[] sortedScores() {
+        int[] sorted = agentScore.clone();
+        Arrays.sort(sorted);
+        for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+            int t = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = t;
+        }
+        return sorted;
+    }
+
+    /**
+     * @param x world coordinate
+     * @param y world coordinate
+     * @return the first agent whose bounds contain the point, null if none
+     */
+    Agent agentAt(int x, int y) {
+        for (int i = 0; i < agentCount; i++) {
+            int ax = (int) agentX[i];
+            int ay = (int) agentY[i];
+            if (x >= ax && y >= ay && x < ax + agentSize[i] && y < ay + agentSize[i]) {
+                return agents[i];
+            }
+        }
+        return null;
+    }
+
+    //center of agent i, like CollidableObject.getCenterX/Y
+    int centerX(int i) {
+        return (int) (agentX[i] + agentSize[i] / 2);
+    }
+
+    int centerY(int i) {
+        return (int) (agentY[i] + agentSize[i] / 2);
+    }
+}
@@ -14,8 +14,10 @@ public final class ScreenControls implements KeyListener, MouseWheelListener, Mo
     //Singleton instance
     private static ScreenControls instance = null;
 
-    //Target agent
-    private Agent target = null;
+    //Target agent and where it was last seen (see track), the target is
+    //set on the event dispatch thread and read by the simulation thread
+    private volatile Agent target = null;
+    private int targetX, targetY;
 
     //Zoom controls
     private final double ZOOM_SPEED;
@@ -54,9 +56,25 @@ public final class ScreenControls implements KeyListener, MouseWheelListener, Mo
     }
 
     public void followTarget(Agent agent) {
+        //stay put until the first snapshot with the agent comes in
+        targetX = x;
+        targetY = y;
         target = agent;
     }
 
+    /**
+     * Moves the point the camera follows, the display calls this with the
+     * center of the target in every snapshot it paints so the agent itself
+     * is never read from the event dispatch thread
+     *
+     * @param x center of the target
+     * @param y center of the target
+     */
+    public void track(int x, int y) {
+        targetX = x;
+        targetY = y;
+    }
+
     public void zoomOut() {
         scale /= ZOOM_SPEED;
     }
@@ -81,7 +99,7 @@ public final class ScreenControls implements KeyListener, MouseWheelListener, Mo
         if (target != null) {
 
             oldX = x;
-            x = (int) (target.getCenterX());
+            x = targetX;
 
             if (Math.abs(x - oldX) > 0) {
 
@@ -100,7 +118,7 @@ public final class ScreenControls implements KeyListener, MouseWheelListener, Mo
         if (target != null) {
 
             oldY = y;
-            y = (int) (target.getCenterY());
+            y = targetY;
 
             if (Math.abs(y - oldY) > 0) {
 
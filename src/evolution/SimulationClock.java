@@ -0,0 +1,36 @@
+package evolution;
+
+/**
+ * Counts simulation ticks. Everything that used to be scheduled from the wall
+ * clock (food spawning, generation length) is measured in ticks instead, so a
+ * run behaves the same no matter how fast it is being stepped.
+ *
+ * The count only ever grows, a reset of the engine starts a new run but keeps
+ * counting, so tick rates (see SimulationControl) stay meaningful across it.
+ */
+public final class SimulationClock {
+
+    //Nominal rate of the simulation when it is watched in real time
+    public static final int TICKS_PER_SECOND = 60;
+
+    private long ticks = 0;
+
+    public void tick() {
+        ticks++;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Converts a duration measured in real time milliseconds at the nominal
+     * tick rate into ticks
+     *
+     * @param millis duration in milliseconds
+     * @return the same duration in ticks
+     */
+    public static long toTicks(long millis) {
+        return millis * TICKS_PER_SECOND / 1000;
+    }
+}
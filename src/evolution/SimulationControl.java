@@ -0,0 +1,258 @@
+package evolution;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters and controls of one engine, registered as an MBean so long
+ * runs can be watched and steered with jconsole or any other JMX client, with
+ * or without a GUI. For remote access start the JVM with the usual
+ * com.sun.management.jmxremote properties.
+ *
+ * The thread that drives the engine goes through this class: awaitTick()
+ * blocks while the simulation is paused (a step lets single ticks through),
+ * pace() sleeps between ticks unless in turbo mode and update() ticks the
+ * engine and keeps the tick time statistics. The operations are called on
+ * JMX threads, the engine protects itself with its own lock.
+ */
+public final class SimulationControl implements SimulationControlMBean {
+
+    //weight of a new tick time in the moving average
+    private static final double TICK_TIME_WEIGHT = 1.0 / 1024;
+
+    private final SimulationEngine engine;
+
+    private volatile int speed = 1;
+    private volatile boolean turbo = false;
+
+    //changed under the lock of this control, paused is also read without it
+    private volatile boolean paused = false;
+    private int pendingSteps = 0;
+
+    //written by the driving thread only
+    private volatile double meanTickNanos = 0;
+
+    //last measurement of the tick rate, guarded by this
+    private long rateTicks;
+    private long rateTime = System.nanoTime();
+    private double rate = 0;
+
+    public SimulationControl(SimulationEngine engine) {
+        this.engine = engine;
+        this.rateTicks = engine.getTicks();
+    }
+
+    /**
+     * Registers this control with the platform MBean server as
+     * evolution:type=SimulationControl,name=name. A failure is logged, the
+     * simulation runs on without remote control.
+     *
+     * @param name distinguishes several simulations in one JVM
+     */
+    public void register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("evolution:type=SimulationControl,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException ex) {
+            Logger.getLogger(SimulationControl.class.getName()).log(Level.WARNING, "Could not register the MBean", ex);
+        }
+    }
+
+    //********************************************************************
+    // Driver side
+    //********************************************************************
+    /**
+     * Returns at once unless paused, in which case it blocks until resumed
+     * or a step is requested
+     *
+     * @throws InterruptedException if interrupted while paused
+     */
+    public void awaitTick() throws InterruptedException {
+        if (!paused) {
+            return;
+        }
+        synchronized (this) {
+            while (paused && pendingSteps == 0) {
+                wait();
+            }
+            if (paused) {
+                pendingSteps--;
+            }
+        }
+    }
+
+    /**
+     * Non blocking version of awaitTick()
+     *
+     * @return true if a tick may be run now
+     */
+    public boolean tryTick() {
+        if (!paused) {
+            return true;
+        }
+        synchronized (this) {
+            if (paused && pendingSteps > 0) {
+                pendingSteps--;
+                return true;
+            }
+            return !paused;
+        }
+    }
+
+    /**
+     * Sleeps for one tick at the nominal tick rate times the speed, does
+     * nothing in turbo mode
+     *
+     * @throws InterruptedException if interrupted while sleeping
+     */
+    public void pace() throws InterruptedException {
+        if (!turbo) {
+            Thread.sleep(1000 / (SimulationClock.TICKS_PER_SECOND * speed));
+        }
+    }
+
+    /**
+     * Ticks the engine once
+     */
+    public void update() {
+        long t = System.nanoTime();
+        engine.update();
+        ticked(System.nanoTime() - t);
+    }
+
+    /**
+     * For drivers that tick the engine some other way (e.g. through a
+     * PopulationController): adds the time of one tick to the statistics
+     *
+     * @param nanos how long the tick took
+     */
+    public void ticked(long nanos) {
+        double mean = meanTickNanos;
+        meanTickNanos = mean == 0 ? nanos : mean + (nanos - mean) * TICK_TIME_WEIGHT;
+    }
+
+    //********************************************************************
+    // Counters
+    //********************************************************************
+    @Override
+    public synchronized double getTicksPerSecond() {
+        long now = System.nanoTime();
+        long ticks = engine.getTicks();
+        if (now - rateTime >= 1000000000L) {
+            rate = Math.max(0, (ticks - rateTicks) / ((now - rateTime) / 1e9));
+            rateTicks = ticks;
+            rateTime = now;
+        }
+        return rate;
+    }
+
+    @Override
+    public long getTicks() {
+        return engine.getTicks();
+    }
+
+    @Override
+    public int getGeneration() {
+        return engine.getGeneration();
+    }
+
+    @Override
+    public long getGenerationsCompleted() {
+        return engine.getGenerationsCompleted();
+    }
+
+    @Override
+    public int getAgentCount() {
+        synchronized (engine) {
+            return engine.getAgents().size();
+        }
+    }
+
+    @Override
+    public int getFoodCount() {
+        synchronized (engine) {
+            return engine.getFood().size();
+        }
+    }
+
+    @Override
+    public double getMeanTickMicros() {
+        return meanTickNanos / 1e3;
+    }
+
+    //********************************************************************
+    // Controls
+    //********************************************************************
+    @Override
+    public int getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public void setSpeed(int speed) {
+        if (speed < 1 || speed > 10) {
+            throw new IllegalArgumentException("Speed must be between 1 and 10");
+        }
+        this.speed = speed;
+    }
+
+    @Override
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    @Override
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+    }
+
+    @Override
+    public long getFoodSpawnPeriod() {
+        return engine.getFoodSpawnPeriod();
+    }
+
+    @Override
+    public void setFoodSpawnPeriod(long ticks) {
+        engine.setFoodSpawnPeriod(ticks);
+    }
+
+    @Override
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public synchronized void pause() {
+        paused = true;
+        pendingSteps = 0;
+    }
+
+    @Override
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void step(int ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("Ticks must not be negative");
+        }
+        paused = true;
+        pendingSteps += ticks;
+        notifyAll();
+    }
+
+    @Override
+    public void nextGeneration() {
+        engine.startNextGeneration();
+    }
+
+    @Override
+    public void reset() {
+        engine.reset();
+    }
+}
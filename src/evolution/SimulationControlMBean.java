@@ -0,0 +1,52 @@
+package evolution;
+
+/**
+ * Management interface of a running simulation, see SimulationControl
+ */
+public interface SimulationControlMBean {
+
+    //ticks per second of wall clock time, measured between two reads at
+    //least a second apart
+    double getTicksPerSecond();
+
+    long getTicks();
+
+    int getGeneration();
+
+    long getGenerationsCompleted();
+
+    int getAgentCount();
+
+    int getFoodCount();
+
+    //average time of SimulationEngine.update() over roughly the last
+    //thousand ticks
+    double getMeanTickMicros();
+
+    //pacing multiplier from 1 to 10, ignored in turbo mode
+    int getSpeed();
+
+    void setSpeed(int speed);
+
+    boolean isTurbo();
+
+    void setTurbo(boolean turbo);
+
+    //SimulationEngine.getFoodSpawnPeriod of this world, in ticks
+    long getFoodSpawnPeriod();
+
+    void setFoodSpawnPeriod(long ticks);
+
+    boolean isPaused();
+
+    void pause();
+
+    void resume();
+
+    //pauses the simulation (if running) and lets it run the given ticks
+    void step(int ticks);
+
+    void nextGeneration();
+
+    void reset();
+}
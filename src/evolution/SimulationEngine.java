@@ -0,0 +1,981 @@
+package evolution;
+
+import java.awt.Rectangle;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import neural.NeuralNetwork;
+import neural.NetworkBatch;
+import selection.SelectionStrategy;
+import selection.TopKSelection;
+import sensor.Sensor;
+import spatial.IndexBuffer;
+import spatial.SpatialGrid;
+import worldObject.Agent;
+import worldObject.AgentStore;
+import worldObject.CollidableObject;
+import worldObject.Food;
+import worldObject.FoodField;
+
+/**
+ * Owns the simulation state (agents, food and generation bookkeeping) and
+ * advances it one tick at a time. This class has no dependency on Swing so it
+ * can be stepped by the GUI (see EvolutionWorld) as well as by the headless
+ * runner (see HeadlessMain).
+ */
+public final class SimulationEngine {
+
+    //Various Simulation variables
+    private final SimulationClock clock = new SimulationClock();
+    private List<Agent> agentList;
+    private final FoodField food;
+
+    //broad phase for the agent collision tests, rebuilt every tick (the
+    //food field is its own index)
+    private final SpatialGrid agentGrid;
+    private final ThreadLocal<IndexBuffer> candidates = ThreadLocal.withInitial(IndexBuffer::new);
+
+    //contacts found for agent i: agents after it in the list, and food
+    private IndexBuffer[] agentContacts = new IndexBuffer[0];
+    private IndexBuffer[] foodContacts = new IndexBuffer[0];
+
+    //narrow phase tests done for agent i this tick, for the profiler
+    private int[] tests = new int[0];
+
+    //per phase timings and counts, off unless enabled
+    private final TickProfiler profiler = new TickProfiler();
+
+    //runs the per agent phases, serial unless setThreads() is used
+    private PhaseExecutor phases = new PhaseExecutor(1);
+
+    //optional structure of arrays storage, slot i holds agentList.get(i)
+    private AgentStore agentStore = null;
+
+    //optional batched evaluation of all networks, repacked when stale
+    private NetworkBatch networkBatch = null;
+    private boolean batchStale = true;
+
+    //keeps track of how many species there are
+    int speciesID = 0;
+
+    //Spawn agents
+    private final int AGENT_SPAWN_AMOUNT = 15;
+
+    //Spawn food (period is in ticks, 300ms at the nominal tick rate). The
+    //amounts are for a population of AGENT_SPAWN_AMOUNT agents. The period
+    //may be changed at run time (see setFoodSpawnPeriod)
+    private volatile long foodSpawnPeriod = SimulationClock.toTicks(300);
+    private final int FOOD_SPAWN_AMOUNT = 100;
+    private final int FOOD_CAPACITY = 1000;
+    private long lastFoodSpawn = 0;
+
+    //Population size from the next generation on (see setPopulationSize),
+    //the food scales with it and with the food density. Every spawn period
+    //adds population * density / AGENT_SPAWN_AMOUNT food items, the
+    //fraction is carried over in foodCredit
+    private int populationSize = AGENT_SPAWN_AMOUNT;
+    private int foodDensity = 1;
+    private int foodCredit = 0;
+
+    //Size of the containment area
+    public static final int BORDER_SIZE = 2000;
+
+    //Random streams, all derived from the seed: every run (see init) splits
+    //a stream off the seed stream, every generation one off the run stream
+    //and every new agent one off the generation stream (see Agent)
+    private final long seed;
+    private final SplittableRandom seedRand;
+    private SplittableRandom runRand;
+    private SplittableRandom rand;
+
+    //Write data to a file (Simulation analysis)
+    private final int TIME_UNTIL_NEXT_GEN = 1200;
+    private final int GENERATIONS_PER_RUN = 150;
+    private long nextGenTick = TIME_UNTIL_NEXT_GEN;
+    private BufferedWriter scoreFile;
+    private int numGenerations = 1;
+    private long generationsCompleted = 0;
+
+    //Selection: how the parents of the next generation are picked, how
+    //many of them and how many mutated copies each parent gets
+    private SelectionStrategy selection = new TopKSelection();
+    private int eliteCount = 3;
+    private int offspringPerElite = 1;
+
+    //agents of the last generation with their final scores, its top score
+    //and how many agents of the current generation were carried over
+    private List<Agent> lastGeneration = new ArrayList<>();
+    private int[] lastScores = new int[0];
+    private int lastTopScore = 0;
+    private int carriedOver = 0;
+
+    //The agent the user is watching, it always survives to the next round
+    private Agent selectedAgent = null;
+
+    //used to record empirical data
+    int fileCount = 0;
+    private String scoreFilePrefix = null;
+    private BufferedWriter brainActivity;
+
+    //Constructor
+    public SimulationEngine() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * @param seed every random decision of the simulation is derived from
+     * this, so two engines with the same seed (and the same calls made on
+     * them) run exactly the same simulation
+     */
+    public SimulationEngine(long seed) {
+        this.seed = seed;
+        this.seedRand = new SplittableRandom(seed);
+        agentGrid = new SpatialGrid(BORDER_SIZE, Agent.SIZE);
+        food = new FoodField(BORDER_SIZE, FOOD_CAPACITY);
+        init();
+    }
+
+    /**
+     * The BufferedWrite this method returns is used for recording an agent's
+     * brain activity over time. The results will be used as a statistical
+     * sample for computing neural complexity. Note a different program will
+     * compute neural complexity for it has a time complexity that is
+     * exponential and thus cannot be computed in real time
+     *
+     * @return brainActivity
+     */
+    public BufferedWriter getBrainActivityBuffWriter() {
+        return brainActivity;
+    }
+
+    /**
+     * Starts writing the average top score of every generation to
+     * prefix + run number + ".txt". A new file is started every time the
+     * simulation resets itself.
+     *
+     * @param prefix path prefix of the score files, null to disable
+     */
+    public synchronized void setScoreFilePrefix(String prefix) {
+        close();
+        scoreFilePrefix = prefix;
+        openScoreFile();
+    }
+
+    public synchronized void init() {
+
+        //new random streams for this run and its first generation
+        runRand = seedRand.split();
+        rand = runRand.split();
+
+        //These writers are used to recored empirical data about the agent
+        openScoreFile();
+
+        //init agents
+        agentList = new ArrayList<>();
+        lastGeneration = new ArrayList<>();
+        lastScores = new int[0];
+        lastTopScore = 0;
+        carriedOver = 0;
+        for (int i = 0; i < populationSize; i++) {
+            agentList.add(new Agent(speciesID++, rand.split()));
+        }
+
+        //init food
+        stockFood();
+
+        agentsChanged();
+    }
+
+    //replace the food with a fresh random supply
+    private void stockFood() {
+        food.clear();
+        for (int i = 0; i < scaled(FOOD_SPAWN_AMOUNT); i++) {
+            int x = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
+            int y = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
+            food.spawn(x, y);
+        }
+    }
+
+    //an amount meant for AGENT_SPAWN_AMOUNT agents, for the current
+    //population size
+    private int scaled(int amount) {
+        return (int) ((long) amount * populationSize * foodDensity / AGENT_SPAWN_AMOUNT);
+    }
+
+    /**
+     * Starts a new generation with the given agents instead of the winners
+     * of the last one, in a freshly stocked world. Used to evaluate agents
+     * that were evolved somewhere else.
+     *
+     * @param agents agents that belong to no other engine
+     */
+    public synchronized void setPopulation(List<Agent> agents) {
+        agentList = new ArrayList<>(agents);
+        lastGeneration = new ArrayList<>();
+        lastScores = new int[0];
+        carriedOver = 0;
+        stockFood();
+        nextGenTick = clock.getTicks() + TIME_UNTIL_NEXT_GEN;
+        agentsChanged();
+    }
+
+    public void reset() {
+        init();
+    }
+
+    private void openScoreFile() {
+        if (scoreFilePrefix == null || scoreFile != null) {
+            return;
+        }
+        try {
+            scoreFile = new BufferedWriter(new FileWriter(new File(scoreFilePrefix + fileCount + ".txt")));
+        } catch (IOException ex) {
+            Logger.getLogger(SimulationEngine.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    public void timedSpawn() {
+
+        //Spawn random food
+        if (clock.getTicks() >= lastFoodSpawn + foodSpawnPeriod) {
+            foodCredit += populationSize * foodDensity;
+            while (foodCredit >= AGENT_SPAWN_AMOUNT) {
+                int x = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
+                int y = rand.nextInt(BORDER_SIZE / Food.SIZE) * Food.SIZE;
+                food.spawn(x, y);
+                foodCredit -= AGENT_SPAWN_AMOUNT;
+            }
+            lastFoodSpawn = clock.getTicks();
+        }
+
+    }
+
+    public void collisions() {
+
+        long t = profiler.start();
+        agentGrid.build(agentList);
+        t = profiler.lap(TickProfiler.Metric.GRID, t);
+
+        //Detection only reads positions, so it runs in parallel. Contacts
+        //are collected per agent and resolved afterwards in the order of a
+        //plain i < j double loop (agents first, then food). Resolving only
+        //changes life and score, never the bounds, so the set of contacts
+        //is the same as when detecting and resolving in one serial loop
+        int n = agentList.size();
+        ensureContactBuffers(n);
+        phases.forEach(n, this::detectContacts);
+        t = profiler.lap(TickProfiler.Metric.DETECT, t);
+
+        //Agent vs Agent
+        for (int i = 0; i < n; i++) {
+            Agent agent1 = agentList.get(i);
+            IndexBuffer hits = agentContacts[i];
+            for (int k = 0; k < hits.size(); k++) {
+                Agent agent2 = agentList.get(hits.get(k));
+                agent1.handleCollision(agent2);
+                agent2.handleCollision(agent1);
+            }
+        }
+        t = profiler.lap(TickProfiler.Metric.RESOLVE_AGENTS, t);
+
+        //Agent vs Food
+        for (int i = 0; i < n; i++) {
+            Agent agent = agentList.get(i);
+            IndexBuffer hits = foodContacts[i];
+            for (int k = 0; k < hits.size(); k++) {
+                Food f = food.get(hits.get(k));
+                agent.handleCollision(f);
+                f.handleCollision(agent);
+            }
+        }
+        t = profiler.lap(TickProfiler.Metric.RESOLVE_FOOD, t);
+
+        //AgentEyes vs Agents/Food
+        sense();
+        profiler.lap(TickProfiler.Metric.SENSE, t);
+
+        if (profiler.isEnabled()) {
+            long tested = 0;
+            long hits = 0;
+            for (int i = 0; i < n; i++) {
+                tested += tests[i];
+                hits += agentContacts[i].size() + foodContacts[i].size();
+            }
+            profiler.record(TickProfiler.Metric.PAIRS_TESTED, tested);
+            profiler.record(TickProfiler.Metric.COLLISIONS, hits);
+        }
+    }
+
+    /**
+     * The sense phase: every agent's eyes look at the world. An agent only
+     * writes to its own sensors while positions, scores and life of everyone
+     * else stay fixed, so the agents are processed in parallel.
+     */
+    private void sense() {
+        phases.forEach(agentList.size(), i -> {
+            IndexBuffer found = candidates.get();
+
+            //only objects inside the bounding box of the eyes are tested,
+            //in list order so the closest object ties resolve as before
+            Agent agent1 = agentList.get(i);
+            Sensor[] eyes = agent1.getEyes();
+            agent1.updateFieldOfView();
+            Rectangle fov = agent1.getFieldOfViewBounds();
+
+            //AgentEyes vs Agents
+            agentGrid.query(fov.x, fov.y, fov.width, fov.height, found);
+            for (int k = 0; k < found.size(); k++) {
+                int j = found.get(k);
+                if (i == j) {
+                    continue;
+                }
+                tests[i] += eyes.length;
+
+                Agent agent2 = agentList.get(j);
+                for (Sensor eye : eyes) {
+                    eye.collision(agent2);
+                }
+            }
+
+            //AgentEyes vs Food
+            food.query(fov.x, fov.y, fov.width, fov.height, found);
+            tests[i] += found.size() * eyes.length;
+            for (int k = 0; k < found.size(); k++) {
+                Food f = food.get(found.get(k));
+                for (Sensor eye : eyes) {
+                    eye.collision(f);
+                }
+            }
+        });
+    }
+
+    /**
+     * The think phase: every agent feeds its senses into its network and
+     * ticks it. Only the agent's own state is involved, so the agents are
+     * processed in parallel (or in chunks of the network batch).
+     */
+    private void think() {
+        if (agentStore != null) {
+            agentStore.decreaseLifeAll(Agent.METABOLISM);
+        }
+
+        if (networkBatch == null) {
+            phases.forEach(agentList.size(), i -> {
+                Agent a = agentList.get(i);
+                if (agentStore == null) {
+                    a.decreaseLife(Agent.METABOLISM);
+                }
+                a.think();
+            });
+            return;
+        }
+
+        if (batchStale) {
+            List<NeuralNetwork> networks = new ArrayList<>();
+            for (Agent a : agentList) {
+                networks.add(a.neuralNet);
+            }
+            networkBatch.pack(networks);
+            batchStale = false;
+        }
+        phases.forEach(agentList.size(), i -> {
+            Agent a = agentList.get(i);
+            if (agentStore == null) {
+                a.decreaseLife(Agent.METABOLISM);
+            }
+            a.neuralNetworkInputs();
+        });
+        phases.forChunks(agentList.size(), networkBatch::tick);
+    }
+
+    /**
+     * The act phase: every agent steers and moves according to the output
+     * of its network.
+     */
+    private void act() {
+        phases.forEach(agentList.size(), i -> agentList.get(i).act());
+    }
+
+    /**
+     * Finds everything agent i touches: the agents after it in the list and
+     * all food. Only writes the contact buffers of agent i.
+     *
+     * @param i index of the agent
+     */
+    private void detectContacts(int i) {
+        IndexBuffer found = candidates.get();
+        Agent agent1 = agentList.get(i);
+        int x = agent1.getBoundsX();
+        int y = agent1.getBoundsY();
+        int size = agent1.getBoundsSize();
+
+        //candidates come back sorted, so the contacts are too
+        IndexBuffer hits = agentContacts[i];
+        hits.clear();
+        tests[i] = 0;
+        agentGrid.query(x, y, size, size, found);
+        for (int k = 0; k < found.size(); k++) {
+            int j = found.get(k);
+            if (j <= i) {
+                continue;
+            }
+            tests[i]++;
+            boolean hit = agentStore != null
+                    ? agentStore.checkCollision(i, j)
+                    : CollidableObject.checkCollision(agent1, agentList.get(j));
+            if (hit) {
+                hits.add(j);
+            }
+        }
+
+        hits = foodContacts[i];
+        //the food field lookup is exact, every cell found is touched
+        food.query(x, y, size, size, hits);
+    }
+
+    //contacts of agent i found by the last collisions(), for the tests
+    IndexBuffer getAgentContacts(int i) {
+        return agentContacts[i];
+    }
+
+    IndexBuffer getFoodContacts(int i) {
+        return foodContacts[i];
+    }
+
+    private void ensureContactBuffers(int n) {
+        if (agentContacts.length >= n) {
+            return;
+        }
+        int old = agentContacts.length;
+        int capacity = Math.max(n, 2 * old);
+        agentContacts = Arrays.copyOf(agentContacts, capacity);
+        foodContacts = Arrays.copyOf(foodContacts, capacity);
+        tests = Arrays.copyOf(tests, capacity);
+        for (int i = old; i < capacity; i++) {
+            agentContacts[i] = new IndexBuffer(8);
+            foodContacts[i] = new IndexBuffer(8);
+        }
+    }
+
+    public void startNextGeneration() {
+        synchronized (this) {
+
+            GenerationEvent event = new GenerationEvent();
+            event.begin();
+
+            generationsCompleted++;
+            numGenerations++;
+            if (numGenerations > GENERATIONS_PER_RUN) {
+                close();
+                fileCount++;
+                this.numGenerations = 1;
+                reset();
+            }
+
+            //new random stream for this generation
+            rand = runRand.split();
+
+            stockFood();
+
+            //Remember the scores, the agents are reset below
+            lastGeneration = agentList;
+            lastScores = new int[agentList.size()];
+            lastTopScore = 0;
+            for (int i = 0; i < lastScores.length; i++) {
+                lastScores[i] = agentList.get(i).score;
+                lastTopScore = Math.max(lastTopScore, lastScores[i]);
+            }
+
+            //Average the top top four agents scores and write it to a file.
+            //this is used to collect statistical data to measure
+            //the averge score vs number of generations. The results
+            //show an increase in the average score with time.
+            if (scoreFile != null) {
+                try {
+                    double ave = getLastTopAverage(4);
+                    scoreFile.write("" + ave + "\n");
+                } catch (IOException ex) {
+                }
+            }
+
+            //These will be the top agent from this round that will
+            //be allowed to move onto the next round
+            List<Agent> elites = new ArrayList<>();
+
+            //If the user has an agent selected then that agent is guaranteed
+            //to make it to the next round. This is to make it easy for
+            //recording brain activity so neural complexity can be measured
+            if (selectedAgent != null) {
+                selectedAgent.setLife(1);
+                selectedAgent.score = 0;
+                elites.add(selectedAgent);
+            }
+
+            //let the selection pick the parents, they move onto the next
+            //round in addition to mutated copies of themselves. A parent
+            //that is picked more than once only gets more copies
+            Set<Agent> survivors = new HashSet<>();
+            for (int i : selection.select(lastScores, eliteCount, rand)) {
+                Agent a = lastGeneration.get(i);
+                if (!a.equals(selectedAgent)) {
+                    if (survivors.add(a)) {
+                        a.score = 0;
+                        elites.add(a);
+                    }
+                    for (int k = 0; k < offspringPerElite; k++) {
+                        elites.add((Agent) a.clone());
+                    }
+                }
+            }
+            //a shrunk population keeps the best of them
+            if (elites.size() > populationSize) {
+                elites = new ArrayList<>(elites.subList(0, populationSize));
+            }
+            agentList = elites;
+            carriedOver = elites.size();
+
+            //Some agents (the winners) will be copied to the next round.
+            //The remaining agents will be randomly created
+            while (agentList.size() < populationSize) {
+                agentList.add(new Agent(speciesID++, rand.split()));
+            }
+            agentsChanged();
+
+            //Set the time for when the next generation will occur
+            nextGenTick = clock.getTicks() + TIME_UNTIL_NEXT_GEN;
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.generation = generationsCompleted;
+                event.population = agentList.size();
+                event.topScore = lastTopScore;
+                event.topAverage = getLastTopAverage(4);
+                event.food = food.size();
+                event.commit();
+            }
+        }
+    }
+
+    public void purge() {
+
+        //purge agent list
+        Iterator<Agent> a_iterator = agentList.listIterator();
+        while (a_iterator.hasNext()) {
+            Agent agent = a_iterator.next();
+            if (agent.getLife() <= 0) {
+                if (agent.wasKilled) {
+                    //not used at the moment
+                }
+                //For this version agents do not die when they
+                //lose all of their life, instead if some other
+                //agent kill them they lose their score. Thus life
+                //in this way acts like defence for an agents score.
+
+                //iterator.remove();
+            }
+        }
+
+        //purge food
+        food.purge();
+
+    }
+
+    public synchronized Agent getHighestScoringAgent() {
+        Agent follow = null;
+        int highestScore = 0;
+        for (Agent agent : agentList) {
+            if (agent.score >= highestScore) {
+                highestScore = agent.score;
+                follow = agent;
+            }
+        }
+        return follow;
+    }
+
+    /**
+     * Copies what the display needs of the current tick, see RenderSnapshot
+     *
+     * @param target agent followed by the camera, may be null
+     * @param profile lines of the tick profiler for the HUD, they must not
+     * change afterwards
+     * @return the snapshot
+     */
+    synchronized RenderSnapshot snapshot(Agent target, List<String> profile) {
+        return new RenderSnapshot(this, target, profile);
+    }
+
+    public synchronized void update() {
+
+        //a sampled tick is handed to the flight recorder if it listens
+        TickEvent event = null;
+        if (clock.getTicks() % TickEvent.SAMPLE_PERIOD == 0) {
+            event = new TickEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                profiler.setCapturing(true);
+            } else {
+                event = null;
+            }
+        }
+
+        long tickStart = profiler.start();
+        long t = tickStart;
+
+        //Generation managment
+        clock.tick();
+        if (clock.getTicks() >= nextGenTick) {
+            startNextGeneration();
+        }
+        t = profiler.lap(TickProfiler.Metric.GENERATION, t);
+
+        //spawn new bots/food every 'x' ticks
+        timedSpawn();
+        t = profiler.lap(TickProfiler.Metric.SPAWN, t);
+
+        //update agents, first all of them think then all of them
+        //act, so nobody sees someone else half way through a step
+        think();
+        t = profiler.lap(TickProfiler.Metric.THINK, t);
+        act();
+        t = profiler.lap(TickProfiler.Metric.ACT, t);
+
+        //age food and essence
+        food.age();
+        profiler.lap(TickProfiler.Metric.FOOD_AGE, t);
+
+        //test and handle collisions (timed by phase inside)
+        collisions();
+
+        //purge all dead food and agents
+        t = profiler.start();
+        purge();
+        profiler.lap(TickProfiler.Metric.PURGE, t);
+
+        profiler.lap(TickProfiler.Metric.TICK, tickStart);
+        if (profiler.isEnabled()) {
+            long neurons = 0;
+            for (Agent a : agentList) {
+                neurons += a.neuralNet.GENES;
+            }
+            profiler.record(TickProfiler.Metric.NEURON_EVALS, neurons);
+        }
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = clock.getTicks();
+                event.agents = agentList.size();
+                event.food = food.size();
+                event.generation = profiler.getCaptured(TickProfiler.Metric.GENERATION);
+                event.spawn = profiler.getCaptured(TickProfiler.Metric.SPAWN);
+                event.think = profiler.getCaptured(TickProfiler.Metric.THINK);
+                event.act = profiler.getCaptured(TickProfiler.Metric.ACT);
+                event.foodAge = profiler.getCaptured(TickProfiler.Metric.FOOD_AGE);
+                event.grid = profiler.getCaptured(TickProfiler.Metric.GRID);
+                event.detect = profiler.getCaptured(TickProfiler.Metric.DETECT);
+                event.resolveAgents = profiler.getCaptured(TickProfiler.Metric.RESOLVE_AGENTS);
+                event.resolveFood = profiler.getCaptured(TickProfiler.Metric.RESOLVE_FOOD);
+                event.sense = profiler.getCaptured(TickProfiler.Metric.SENSE);
+                event.purge = profiler.getCaptured(TickProfiler.Metric.PURGE);
+                event.commit();
+            }
+            profiler.setCapturing(false);
+        }
+    }
+
+    //called whenever agentList has been replaced, moves the agents of the
+    //current generation into the store (in list order) and marks the
+    //network batch as stale
+    private void agentsChanged() {
+        batchStale = true;
+        if (agentStore == null) {
+            return;
+        }
+        agentStore.clear();
+        for (Agent a : agentList) {
+            agentStore.add(a);
+        }
+    }
+
+    /**
+     * Copies of agents of the last generation picked by the selection
+     * strategy of this engine (see setSelection), made with Agent.clone() so
+     * they share no state with this engine. A sampling strategy draws from
+     * the random stream of the current generation, an agent it picks more
+     * than once is only copied once.
+     *
+     * @param count number of agents wanted
+     * @return at most count copies, in the order of the selection
+     */
+    public synchronized List<Agent> emigrants(int count) {
+        List<Agent> copies = new ArrayList<>();
+        if (lastScores.length == 0 || count <= 0) {
+            return copies;
+        }
+        Set<Integer> picked = new HashSet<>();
+        for (int i : selection.select(lastScores, count, rand)) {
+            if (picked.add(i)) {
+                copies.add((Agent) lastGeneration.get(i).clone());
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Takes in agents from another world. They replace the agents at the end
+     * of the list, which are the freshly created random ones. The elites
+     * carried over from the last generation are never replaced, so migrants
+     * that do not fit are dropped.
+     *
+     * @param migrants agents that belong to no other engine
+     * @return the number of migrants taken in
+     */
+    public synchronized int immigrate(List<Agent> migrants) {
+        int n = Math.min(migrants.size(), agentList.size() - carriedOver);
+        for (int k = 0; k < n; k++) {
+            agentList.set(agentList.size() - 1 - k, migrants.get(k));
+        }
+        if (n > 0) {
+            agentsChanged();
+        }
+        return n;
+    }
+
+    /**
+     * Stops the worker threads of the parallel phases (see setThreads), for
+     * good. Unlike close(), which only ends the score file of the current
+     * run, the engine must not be updated afterwards.
+     */
+    public synchronized void shutdown() {
+        close();
+        phases.shutdown();
+    }
+
+    public synchronized void close() {
+        if (scoreFile == null) {
+            return;
+        }
+        try {
+            scoreFile.close();
+        } catch (IOException ex) {
+            Logger.getLogger(SimulationEngine.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        scoreFile = null;
+    }
+
+    //********************************************************************
+    // Sets
+    //********************************************************************
+    /**
+     * Keeps the kinematic state of all agents in parallel primitive arrays
+     * (see AgentStore) instead of the agent objects. The results are the same
+     * either way, the store only pays off for large populations.
+     *
+     * @param enabled true to use the store
+     */
+    public synchronized void setAgentStoreEnabled(boolean enabled) {
+        if (agentStore != null) {
+            agentStore.clear();
+        }
+        agentStore = enabled ? new AgentStore(populationSize) : null;
+        agentsChanged();
+    }
+
+    /**
+     * Evaluates the networks of the whole population in one batch (see
+     * NetworkBatch) instead of one agent at a time. The results are the
+     * same either way.
+     *
+     * @param enabled true to use batched inference
+     */
+    public synchronized void setBatchedInference(boolean enabled) {
+        if (networkBatch != null) {
+            networkBatch.clear();
+        }
+        networkBatch = enabled ? new NetworkBatch() : null;
+        batchStale = true;
+    }
+
+    /**
+     * Spreads the sense, think and act phases of every tick over the given
+     * number of threads. The results do not depend on the thread count.
+     *
+     * @param threads number of threads, 1 to run on the simulation thread
+     */
+    public synchronized void setThreads(int threads) {
+        phases.shutdown();
+        phases = new PhaseExecutor(threads);
+    }
+
+    /**
+     * Sets how the next generation is bred: the strategy picks eliteCount
+     * parents from the scores of the finished generation, each of them
+     * survives together with offspringPerElite mutated copies and the rest
+     * of the population is filled up with new random agents.
+     *
+     * @param strategy picks the parents
+     * @param eliteCount number of parents picked
+     * @param offspringPerElite mutated copies per parent
+     */
+    public synchronized void setSelection(SelectionStrategy strategy, int eliteCount, int offspringPerElite) {
+        if (eliteCount < 0 || offspringPerElite < 0) {
+            throw new IllegalArgumentException("Elite count and offspring must not be negative");
+        }
+        this.selection = strategy;
+        this.eliteCount = eliteCount;
+        this.offspringPerElite = offspringPerElite;
+    }
+
+    /**
+     * Sets the number of agents of the following generations. The food is
+     * scaled along so the food per agent stays the same: the initial stock,
+     * the items spawned every food spawn period and the food capacity. The
+     * current generation keeps its agents, only the capacity applies at once.
+     *
+     * @param agents population size, at least 1
+     */
+    public synchronized void setPopulationSize(int agents) {
+        if (agents < 1) {
+            throw new IllegalArgumentException("Population size must be positive");
+        }
+        populationSize = agents;
+        food.setCapacity(scaled(FOOD_CAPACITY));
+    }
+
+    /**
+     * Multiplies the food per agent: the initial stock, the items spawned
+     * every food spawn period and the food capacity. The stock changes with
+     * the next generation.
+     *
+     * @param factor food per agent relative to the default, at least 1
+     */
+    public synchronized void setFoodDensity(int factor) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Food density must be positive");
+        }
+        foodDensity = factor;
+        food.setCapacity(scaled(FOOD_CAPACITY));
+    }
+
+    /**
+     * Sets how often food is spawned in this world, takes effect with the
+     * next spawn
+     *
+     * @param ticks ticks between two spawns, at least 1
+     */
+    public void setFoodSpawnPeriod(long ticks) {
+        if (ticks < 1) {
+            throw new IllegalArgumentException("Food spawn period must be at least one tick");
+        }
+        foodSpawnPeriod = ticks;
+    }
+
+    public long getFoodSpawnPeriod() {
+        return foodSpawnPeriod;
+    }
+
+    /**
+     * Limits the number of food items in the world, spawns beyond it are
+     * skipped
+     *
+     * @param capacity maximum number of food items
+     */
+    public synchronized void setFoodCapacity(int capacity) {
+        food.setCapacity(capacity);
+    }
+
+    /**
+     * A new random stream split off the stream of the current generation,
+     * for creating agents that are going to be added to this world
+     *
+     * @return an independent stream
+     */
+    public synchronized SplittableRandom splitRandom() {
+        return rand.split();
+    }
+
+    public void setSelectedAgent(Agent agent) {
+        selectedAgent = agent;
+    }
+
+    //********************************************************************
+    // Gets
+    //********************************************************************
+    //Note: callers must hold the lock on this engine while iterating
+    public List<Agent> getAgents() {
+        return agentList;
+    }
+
+    //Note: callers must hold the lock on this engine while iterating
+    public FoodField getFood() {
+        return food;
+    }
+
+    public int getGeneration() {
+        return numGenerations;
+    }
+
+    public long getGenerationsCompleted() {
+        return generationsCompleted;
+    }
+
+    public long getNextGenTimer() {
+        return nextGenTick - clock.getTicks();
+    }
+
+    public long getTicks() {
+        return clock.getTicks();
+    }
+
+    //length of a generation in ticks
+    public long getGenerationTicks() {
+        return TIME_UNTIL_NEXT_GEN;
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    //per phase timings, see TickProfiler.setEnabled
+    public TickProfiler getProfiler() {
+        return profiler;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    //highest score of the last generation
+    public int getLastTopScore() {
+        return lastTopScore;
+    }
+
+    /**
+     * The average score of the best agents of the last generation, the
+     * progress measure that is written to the score file (with count 4)
+     *
+     * @param count number of agents averaged
+     * @return the average, 0 before the first generation has ended
+     */
+    public synchronized double getLastTopAverage(int count) {
+        int[] top = TopKSelection.top(lastScores, count);
+        if (top.length == 0) {
+            return 0;
+        }
+        double ave = 0;
+        for (int i : top) {
+            ave += lastScores[i];
+        }
+        return ave / top.length;
+    }
+}
@@ -0,0 +1,78 @@
+package evolution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a sampled tick (one in SAMPLE_PERIOD) with the
+ * durations of its phases, see TickProfiler.Metric. Off unless enabled by a
+ * recording, see jfr/evolution.jfc.
+ */
+@Name("evolution.Tick")
+@Label("Tick")
+@Description("A sampled simulation tick with the time of every phase")
+@Category({"EvolutionWorld", "Simulation"})
+@Enabled(false)
+final class TickEvent extends Event {
+
+    //one tick in this many is recorded
+    static final int SAMPLE_PERIOD = 100;
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Agents")
+    int agents;
+
+    @Label("Food")
+    int food;
+
+    @Label("Generation")
+    @Timespan(Timespan.NANOSECONDS)
+    long generation;
+
+    @Label("Spawn")
+    @Timespan(Timespan.NANOSECONDS)
+    long spawn;
+
+    @Label("Think")
+    @Timespan(Timespan.NANOSECONDS)
+    long think;
+
+    @Label("Act")
+    @Timespan(Timespan.NANOSECONDS)
+    long act;
+
+    @Label("Food Age")
+    @Timespan(Timespan.NANOSECONDS)
+    long foodAge;
+
+    @Label("Agent Grid")
+    @Timespan(Timespan.NANOSECONDS)
+    long grid;
+
+    @Label("Detect Contacts")
+    @Timespan(Timespan.NANOSECONDS)
+    long detect;
+
+    @Label("Agent Hits")
+    @Timespan(Timespan.NANOSECONDS)
+    long resolveAgents;
+
+    @Label("Food Hits")
+    @Timespan(Timespan.NANOSECONDS)
+    long resolveFood;
+
+    @Label("Sense")
+    @Timespan(Timespan.NANOSECONDS)
+    long sense;
+
+    @Label("Purge")
+    @Timespan(Timespan.NANOSECONDS)
+    long purge;
+}
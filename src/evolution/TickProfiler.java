@@ -0,0 +1,223 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records how long every phase of a tick takes and how much work it did, so
+ * a slow simulation can be traced to the phase that is responsible.
+ *
+ * Every metric keeps the last WINDOW samples in a ring buffer, percentiles are
+ * computed from those on demand. Times are in nanoseconds, the counters are
+ * per tick. While disabled (the default) start() and lap() do not even read
+ * the clock, so the engine can call them unconditionally.
+ *
+ * Independently of that the engine can capture the phase times of single
+ * ticks (see setCapturing), which is how the TickEvent of a sampled tick gets
+ * its durations without the histograms being kept.
+ *
+ * The engine records on the simulation thread while holding its own lock,
+ * painting records from the event dispatch thread, so all methods that touch
+ * the histograms are synchronized.
+ */
+public final class TickProfiler {
+
+    /**
+     * What is measured
+     */
+    public enum Metric {
+        //the whole of SimulationEngine.update()
+        TICK("tick", true),
+        //starting the next generation, most ticks only check the timer
+        GENERATION("generation", true),
+        SPAWN("spawn", true),
+        THINK("think", true),
+        ACT("act", true),
+        FOOD_AGE("food age", true),
+        //the four parts of collisions()
+        GRID("agent grid", true),
+        DETECT("detect", true),
+        RESOLVE_AGENTS("agent hits", true),
+        RESOLVE_FOOD("food hits", true),
+        SENSE("sense", true),
+        PURGE("purge", true),
+        //copying the world for the display, see RenderSnapshot
+        SNAPSHOT("snapshot", true),
+        //painting a snapshot, the engine lock is not held
+        PAINT("paint", true),
+        //how long a GUI tick waited for the engine lock
+        LOCK_WAIT("lock wait", true),
+        //narrow phase tests: agent pairs and eye vs object
+        PAIRS_TESTED("pairs tested", false),
+        //contacts resolved, agent vs agent and agent vs food
+        COLLISIONS("collisions", false),
+        NEURON_EVALS("neuron evals", false);
+
+        public final String label;
+        public final boolean isTime;
+
+        Metric(String label, boolean isTime) {
+            this.label = label;
+            this.isTime = isTime;
+        }
+    }
+
+    //samples kept per metric
+    private static final int WINDOW = 1024;
+
+    private final long[][] samples = new long[Metric.values().length][WINDOW];
+    private final int[] next = new int[Metric.values().length];
+    private final int[] filled = new int[Metric.values().length];
+    private final long[] count = new long[Metric.values().length];
+    private final long[] total = new long[Metric.values().length];
+
+    private volatile boolean enabled = false;
+
+    //times of the current tick, only taken while capturing (which is set and
+    //read on the simulation thread)
+    private boolean capturing = false;
+    private final long[] captured = new long[Metric.values().length];
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void setCapturing(boolean capturing) {
+        this.capturing = capturing;
+        if (capturing) {
+            Arrays.fill(captured, 0);
+        }
+    }
+
+    //time of the metric in the tick being captured
+    long getCaptured(Metric m) {
+        return captured[m.ordinal()];
+    }
+
+    /**
+     * @return the current time if enabled or capturing, else 0
+     */
+    public long start() {
+        return enabled || capturing ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start for the metric
+     *
+     * @param m a time metric
+     * @param start value of start() or of the previous lap()
+     * @return the current time, the start of the next phase (0 if disabled)
+     */
+    public long lap(Metric m, long start) {
+        if (!enabled && !capturing) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        //enabled half way through a tick
+        if (start != 0) {
+            if (capturing) {
+                captured[m.ordinal()] = now - start;
+            }
+            if (enabled) {
+                record(m, now - start);
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Adds a sample to the metric, ignored while disabled
+     *
+     * @param m the metric
+     * @param value nanoseconds or a count
+     */
+    public synchronized void record(Metric m, long value) {
+        if (!enabled) {
+            return;
+        }
+        int i = m.ordinal();
+        samples[i][next[i]] = value;
+        next[i] = (next[i] + 1) % WINDOW;
+        filled[i] = Math.min(filled[i] + 1, WINDOW);
+        count[i]++;
+        total[i] += value;
+    }
+
+    /**
+     * @param m the metric
+     * @param p between 0 and 1, e.g. 0.99
+     * @return the percentile over the last samples, 0 without samples
+     */
+    public synchronized long percentile(Metric m, double p) {
+        int i = m.ordinal();
+        if (filled[i] == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples[i], filled[i]);
+        Arrays.sort(sorted);
+        int k = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, k))];
+    }
+
+    //the most recent sample, 0 without samples
+    public synchronized long getLast(Metric m) {
+        int i = m.ordinal();
+        return filled[i] == 0 ? 0 : samples[i][(next[i] + WINDOW - 1) % WINDOW];
+    }
+
+    //mean over all samples since the last reset
+    public synchronized double getMean(Metric m) {
+        int i = m.ordinal();
+        return count[i] == 0 ? 0 : (double) total[i] / count[i];
+    }
+
+    public synchronized long getCount(Metric m) {
+        return count[m.ordinal()];
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(next, 0);
+        Arrays.fill(filled, 0);
+        Arrays.fill(count, 0);
+        Arrays.fill(total, 0);
+    }
+
+    /**
+     * One line per metric that has samples: p50, p99 and mean, times in
+     * microseconds
+     *
+     * @return the lines, for the HUD or a log
+     */
+    public synchronized List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        for (Metric m : Metric.values()) {
+            if (count[m.ordinal()] == 0) {
+                continue;
+            }
+            if (m.isTime) {
+                lines.add(String.format("%-12s p50 %8.1f us  p99 %8.1f us  mean %8.1f us", m.label,
+                        percentile(m, 0.5) / 1e3, percentile(m, 0.99) / 1e3, getMean(m) / 1e3));
+            } else {
+                lines.add(String.format("%-12s p50 %8d     p99 %8d     mean %8.1f", m.label,
+                        percentile(m, 0.5), percentile(m, 0.99), getMean(m)));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return all lines of lines() in one string
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines()) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package neural;
+
+/**
+ * The two dense steps of NetworkBatch.tick for the neurons of one network, so
+ * they can be done with explicit SIMD instructions. The only implementation
+ * is VectorKernel (in src-vector), NetworkBatch does the same work in scalar
+ * loops when it is not available.
+ */
+interface BatchKernel {
+
+    /**
+     * products[k] = out[inSrc[k]] * inWeight[k] for k from from up to to
+     *
+     * @param out activations
+     * @param inSrc source neuron of every input
+     * @param inWeight weight of every input
+     * @param products receives the weighted inputs
+     * @param from first input
+     * @param to input after the last one
+     */
+    void products(double[] out, int[] inSrc, double[] inWeight, double[] products, int from, int to);
+
+    /**
+     * For every neuron i from lo up to hi
+     *
+     *   target = sigmoid(acc[i] * gw[i] + bias[i])
+     *   oldOut[i] = out[i]
+     *   out[i] = out[i] + (target - out[i]) * kp[i]
+     *
+     * @param acc weighted sum of the inputs of every neuron
+     * @param gw gain
+     * @param bias bias
+     * @param kp rate the activation moves towards the target
+     * @param out activations, updated
+     * @param oldOut receives the previous activations
+     * @param lo first neuron
+     * @param hi neuron after the last one
+     */
+    void activate(double[] acc, double[] gw, double[] bias, double[] kp, double[] out, double[] oldOut, int lo, int hi);
+}
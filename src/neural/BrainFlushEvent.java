@@ -0,0 +1,29 @@
+package neural;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a chunk of brain activity being handed to the
+ * recording's writer (see FlushEventWriter), the duration includes any file
+ * I/O that writer does. Off unless enabled by a recording, see
+ * jfr/evolution.jfc.
+ */
+@Name("evolution.BrainFlush")
+@Label("Brain Activity Flush")
+@Description("Recorded brain activity was written out")
+@Category({"EvolutionWorld", "I/O"})
+@Enabled(false)
+final class BrainFlushEvent extends Event {
+
+    @Label("Characters")
+    long characters;
+
+    @Label("Closed")
+    @Description("The recording was stopped")
+    boolean closed;
+}
@@ -0,0 +1,41 @@
+package neural;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Sits between the buffer of a brain activity recording and the writer the
+ * recording was started with, every chunk that leaves the buffer is reported
+ * as a BrainFlushEvent.
+ */
+final class FlushEventWriter extends FilterWriter {
+
+    FlushEventWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        BrainFlushEvent event = new BrainFlushEvent();
+        event.begin();
+        out.write(cbuf, off, len);
+        event.end();
+        if (event.shouldCommit()) {
+            event.characters = len;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        BrainFlushEvent event = new BrainFlushEvent();
+        event.begin();
+        out.close();
+        event.end();
+        if (event.shouldCommit()) {
+            event.closed = true;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package neural;
+
+import java.util.Arrays;
+import java.util.List;
+import util.FastMath;
+
+/**
+ * Evaluates a whole population of identically shaped networks in one pass.
+ *
+ * pack() concatenates the packed genomes of all networks into population wide
+ * tables (network n owns neurons n * GENES up to (n + 1) * GENES) and moves
+ * the activations of the networks into population wide arrays, which the
+ * networks then use as their own (see NeuralNetwork.bind). So tick() works
+ * directly on the state of the networks, nothing is copied in or out, and
+ * afterwards every network looks exactly as if its own tick() had been called.
+ *
+ * Per network the non input neurons are evaluated in two sweeps: the first
+ * one does the sparse accumulation, the second one is a dense loop over
+ * contiguous arrays (gain, bias, sigmoid, kp). The input neurons are left
+ * alone. The arithmetic is done in the same order as NeuralNetwork.tick() so
+ * the results are bit identical.
+ *
+ * These are plain scalar loops. The JIT does not vectorize them: the inputs
+ * are gathered through an index table and the sigmoid is a call to FastMath
+ * (a volatile read, then Math.exp or a table lookup). An explicit SIMD
+ * version of the weighting and the dense sweep (VectorKernel, see
+ * BatchKernel) is used instead if it was built, the JVM runs with
+ * --add-modules jdk.incubator.vector and it was switched on with
+ * setVectorKernelEnabled. Its sigmoid is not bit identical to Math.exp, so
+ * it is off by default.
+ */
+public class NetworkBatch {
+
+    //the SIMD kernel, null if it was not built or the module is missing
+    private static final BatchKernel VECTOR_KERNEL = loadVectorKernel();
+    private static volatile boolean vectorEnabled = false;
+
+    private NeuralNetwork[] networks = new NeuralNetwork[0];
+    private int count;
+    private int genes;
+    private int inputs;
+
+    //population wide tables, see NeuralNetwork for the per network layout
+    private int[] inStart;
+    private int[] inSrc;
+    private double[] inWeight;
+    private double[] bias;
+    private double[] gw;
+    private double[] kp;
+    private boolean[] type;
+
+    //population wide state
+    private double[] out;
+    private double[] oldOut;
+    private double[] acc;
+    private double[] products;
+
+    /**
+     * Packs the genomes of the given networks and binds their activations to
+     * this batch, the networks of the last pack are released (see clear).
+     * Has to be called again whenever the population changes or one of the
+     * networks is mutated.
+     *
+     * @param population distinct networks that all have the same shape
+     */
+    public void pack(List<NeuralNetwork> population) {
+
+        clear();
+        count = population.size();
+        networks = population.toArray(new NeuralNetwork[count]);
+        genes = count == 0 ? 0 : networks[0].GENES;
+        inputs = count == 0 ? 0 : networks[0].INPUTS;
+
+        int total = 0;
+        for (NeuralNetwork nn : networks) {
+            if (nn.GENES != genes || nn.INPUTS != inputs) {
+                throw new IllegalArgumentException("All networks in a batch need the same shape");
+            }
+            nn.ensurePacked();
+            total += nn.inSrc.length;
+        }
+
+        int neurons = count * genes;
+        inStart = new int[neurons + 1];
+        inSrc = new int[total];
+        inWeight = new double[total];
+        bias = new double[neurons];
+        gw = new double[neurons];
+        kp = new double[neurons];
+        type = new boolean[neurons];
+        out = new double[neurons];
+        oldOut = new double[neurons];
+        acc = new double[neurons];
+        products = new double[total];
+
+        int k = 0;
+        for (int n = 0; n < count; n++) {
+            NeuralNetwork nn = networks[n];
+            int base = n * genes;
+            for (int i = 0; i < genes; i++) {
+                inStart[base + i] = k;
+                for (int e = nn.inStart[i]; e < nn.inStart[i + 1]; e++) {
+                    inSrc[k] = base + nn.inSrc[e];
+                    inWeight[k] = nn.inWeight[e];
+                    k++;
+                }
+            }
+            System.arraycopy(nn.bias, 0, bias, base, genes);
+            System.arraycopy(nn.gw, 0, gw, base, genes);
+            System.arraycopy(nn.kp, 0, kp, base, genes);
+            System.arraycopy(nn.type, 0, type, base, genes);
+            nn.bind(out, oldOut, base);
+        }
+        inStart[neurons] = k;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public static boolean isVectorKernelAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    public static boolean isVectorKernelEnabled() {
+        return vectorEnabled;
+    }
+
+    /**
+     * Switches the SIMD kernel on or off for all batches. Like
+     * FastMath.setEnabled it is meant to be set once before a run.
+     *
+     * @param enable true to use the kernel if it is available
+     * @return true if the kernel is used from now on
+     */
+    public static boolean setVectorKernelEnabled(boolean enable) {
+        vectorEnabled = enable && VECTOR_KERNEL != null;
+        return vectorEnabled;
+    }
+
+    private static BatchKernel loadVectorKernel() {
+        try {
+            return (BatchKernel) Class.forName("neural.VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            //not built, or jdk.incubator.vector is not in the module graph
+            return null;
+        }
+    }
+
+    //same as calling tick() on every network of the batch
+    public void tick() {
+        tick(0, count);
+    }
+
+    /**
+     * Same as calling tick() on the networks from up to to. Disjoint ranges
+     * touch disjoint parts of the tables and may run on different threads.
+     *
+     * @param from index of the first network
+     * @param to index after the last network
+     */
+    public void tick(int from, int to) {
+
+        if (vectorEnabled) {
+            tickVector(from, to);
+            return;
+        }
+
+        for (int n = from; n < to; n++) {
+            int lo = n * genes + inputs;
+            int hi = (n + 1) * genes;
+
+            //sparse sweep: weighted sum of the inputs of every neuron, all
+            //of them are read before the first one is written
+            for (int i = lo; i < hi; i++) {
+                double old = oldOut[i];
+                boolean differentiator = type[i];
+
+                double a = 0;
+                for (int k = inStart[i], end = inStart[i + 1]; k < end; k++) {
+                    double val = out[inSrc[k]];
+                    if (differentiator) {
+                        val -= old;
+                        val *= 10;
+                    }
+                    a += val * inWeight[k];
+                }
+                acc[i] = a;
+            }
+
+            //dense sweep: activation and kp update
+            for (int i = lo; i < hi; i++) {
+                double a = acc[i] * gw[i];
+                a += bias[i];
+                a = FastMath.sigmoid(a);
+                double o = out[i];
+                oldOut[i] = o;
+                out[i] = o + (a - o) * kp[i];
+            }
+
+            networks[n].recordBrainActivity();
+        }
+    }
+
+    //tick(from, to) with the SIMD kernel, the differentiator neurons are
+    //summed up in scalar code
+    private void tickVector(int from, int to) {
+        BatchKernel kernel = VECTOR_KERNEL;
+
+        for (int n = from; n < to; n++) {
+            int lo = n * genes + inputs;
+            int hi = (n + 1) * genes;
+
+            //every input is read before the first neuron is written, the
+            //sums are in the same order as in the scalar sweep
+            kernel.products(out, inSrc, inWeight, products, inStart[lo], inStart[hi]);
+            for (int i = lo; i < hi; i++) {
+                double a = 0;
+                if (type[i]) {
+                    double old = oldOut[i];
+                    for (int k = inStart[i], end = inStart[i + 1]; k < end; k++) {
+                        a += (out[inSrc[k]] - old) * 10 * inWeight[k];
+                    }
+                } else {
+                    for (int k = inStart[i], end = inStart[i + 1]; k < end; k++) {
+                        a += products[k];
+                    }
+                }
+                acc[i] = a;
+            }
+
+            kernel.activate(acc, gw, bias, kp, out, oldOut, lo, hi);
+
+            networks[n].recordBrainActivity();
+        }
+    }
+
+    //hand the activations back to the packed networks and drop all
+    //references to them
+    public void clear() {
+        for (int n = 0; n < count; n++) {
+            networks[n].unbind();
+        }
+        Arrays.fill(networks, null);
+        count = 0;
+    }
+}
@@ -1,12 +1,27 @@
 package neural;
 
-import evolution.EvolutionWorld;
 import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import util.FastMath;
 
+/**
+ * A recurrent network of GENES neurons. The first INPUTS neurons are set from
+ * outside, the last OUTPUTS neurons are read as the result.
+ *
+ * The Neuron objects hold the genome. For evaluation the network is packed
+ * into primitive arrays: the activations, a compressed sparse row table of
+ * input sources and weights, and the per neuron parameters. The table is
+ * rebuilt whenever the genome changes (see mutate).
+ *
+ * While the network is part of a NetworkBatch its activations live in the
+ * population wide arrays of the batch, from base on, see bind.
+ */
 public class NeuralNetwork implements Cloneable {
 
     //Network configuration
@@ -22,16 +37,58 @@ public class NeuralNetwork implements Cloneable {
     private Neuron[] neuralNet;
     private double[] outputs;
 
+    //Activations, out is the current value of every neuron, next is the
+    //buffer the following tick is written into. Neuron i is at base + i,
+    //base is 0 unless the arrays belong to a batch
+    double[] out;
+    private double[] next;
+    double[] oldOut;
+    int base = 0;
+    private boolean bound = false;
+
+    //Packed genome, the inputs of neuron i are inSrc/inWeight[inStart[i]]
+    //up to inStart[i + 1]. These arrays are never written after packing so
+    //they may be shared between clones
+    private boolean packed = false;
+    int[] inStart;
+    int[] inSrc;
+    double[] inWeight;
+    double[] bias;
+    double[] gw;
+    double[] kp;
+    boolean[] type;
+
     //Util
-    private Random rand;
+    private SplittableRandom rand;
     BufferedWriter brainActivity = null;
     boolean recording = false;
     double TIME = 15;
     double timer = TIME;
 
-    public NeuralNetwork(int inputs, int hidden, int outputs) {
+    /**
+     * A network with a random genome
+     *
+     * @param inputs number of input neurons
+     * @param hidden number of hidden neurons
+     * @param outputs number of output neurons
+     * @param rand random stream owned by this network from now on, used for
+     * the genome and for mutations
+     */
+    public NeuralNetwork(int inputs, int hidden, int outputs, SplittableRandom rand) {
 
-        this.rand = EvolutionWorld.rand;
+        this(inputs, hidden, outputs, rand, true);
+
+        for (int i = 0; i < GENES; i++) {
+            this.neuralNet[i] = new Neuron(1 + rand.nextInt(7), GENES, this, rand);
+            this.neuralNet[i].index = i;
+        }
+
+    }
+
+    //a network without neurons, they are filled in by the caller
+    private NeuralNetwork(int inputs, int hidden, int outputs, SplittableRandom rand, boolean empty) {
+
+        this.rand = rand;
 
         this.INPUTS = inputs;
         this.OUTPUTS = outputs;
@@ -40,11 +97,131 @@ public class NeuralNetwork implements Cloneable {
 
         this.outputs = new double[OUTPUTS];
         this.neuralNet = new Neuron[GENES];
+        this.out = new double[GENES];
+        this.next = new double[GENES];
+        this.oldOut = new double[GENES];
+    }
+
+    /**
+     * Writes the genome of this network: its shape followed by every
+     * neuron (see Neuron.write). The activations are not written.
+     *
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public void writeGenome(DataOutput out) throws IOException {
+        out.writeInt(INPUTS);
+        out.writeInt(HIDDEN);
+        out.writeInt(OUTPUTS);
+        for (Neuron n : neuralNet) {
+            n.write(out);
+        }
+    }
+
+    /**
+     * @param genes number of neurons of the network
+     * @return the most bytes writeGenome produces for such a network (and
+     * readGenome accepts)
+     */
+    public static long maxGenomeBytes(int genes) {
+        return 3 * 4 + genes * Neuron.maxBytes(genes);
+    }
+
+    /**
+     * Reads a genome written by writeGenome into a new network with all
+     * activations at zero
+     *
+     * @param in source
+     * @param rand random stream for the mutations of the new network
+     * @return the network
+     * @throws IOException if reading fails or the data is not a genome
+     */
+    public static NeuralNetwork readGenome(DataInput in, SplittableRandom rand) throws IOException {
+        int inputs = in.readInt();
+        int hidden = in.readInt();
+        int outputs = in.readInt();
+        if (inputs < 0 || hidden < 0 || outputs < 0 || inputs + hidden + outputs > 1 << 16) {
+            throw new IOException("Invalid network shape " + inputs + "/" + hidden + "/" + outputs);
+        }
+
+        NeuralNetwork nn = new NeuralNetwork(inputs, hidden, outputs, rand, true);
+        for (int i = 0; i < nn.GENES; i++) {
+            nn.neuralNet[i] = new Neuron(in, nn);
+            nn.neuralNet[i].index = i;
+        }
+        return nn;
+    }
+
+    //build the packed evaluation tables from the neurons if they are stale
+    void ensurePacked() {
+        if (!packed) {
+            pack();
+        }
+    }
+
+    //build the packed evaluation tables from the neurons
+    private void pack() {
+        int total = 0;
+        for (Neuron n : neuralNet) {
+            total += n.inIdx.length;
+        }
 
+        inStart = new int[GENES + 1];
+        inSrc = new int[total];
+        inWeight = new double[total];
+        bias = new double[GENES];
+        gw = new double[GENES];
+        kp = new double[GENES];
+        type = new boolean[GENES];
+
+        int k = 0;
         for (int i = 0; i < GENES; i++) {
-            this.neuralNet[i] = new Neuron(1 + rand.nextInt(7), GENES, this, rand);
+            Neuron n = neuralNet[i];
+            inStart[i] = k;
+            for (int j = 0; j < n.inIdx.length; j++) {
+                inSrc[k] = n.inIdx[j];
+                inWeight[k] = n.weight[j];
+                k++;
+            }
+            bias[i] = n.bias;
+            gw[i] = n.gw;
+            kp[i] = n.kp;
+            type[i] = n.type;
         }
+        inStart[GENES] = k;
+        packed = true;
+    }
 
+    /**
+     * Moves the activations into the arrays of a batch, from base on. From
+     * now on the batch ticks this network.
+     *
+     * @param out current values of the batch
+     * @param oldOut previous values of the batch
+     * @param base index of the first neuron of this network
+     */
+    void bind(double[] out, double[] oldOut, int base) {
+        unbind();
+        System.arraycopy(this.out, 0, out, base, GENES);
+        System.arraycopy(this.oldOut, 0, oldOut, base, GENES);
+        this.out = out;
+        this.oldOut = oldOut;
+        this.base = base;
+        bound = true;
+    }
+
+    //copy the activations out of the batch back into arrays of its own
+    void unbind() {
+        if (bound) {
+            out = Arrays.copyOfRange(out, base, base + GENES);
+            oldOut = Arrays.copyOfRange(oldOut, base, base + GENES);
+            base = 0;
+            bound = false;
+        }
+    }
+
+    public boolean isBound() {
+        return bound;
     }
 
     public void mutate() {
@@ -65,6 +242,7 @@ public class NeuralNetwork implements Cloneable {
                 }
             }
         }
+        packed = false;
     }
 
     public void setInputs(double[] inputs) {
@@ -73,40 +251,95 @@ public class NeuralNetwork implements Cloneable {
                     + "Class: NeuralNetworks, Method: setInputs");
         }
         for (int i = 0; i < INPUTS; i++) {
-            neuralNet[i].setOut(inputs[i]);
+            setOut(i, inputs[i]);
         }
     }
 
     public double[] getOutputs() {
         //return an array of the output node's out values
         for (int i = 0; i < OUTPUTS; i++) {
-            outputs[i] = neuralNet[(i) + (INPUTS) + (HIDDEN)].getOut();
+            outputs[i] = getOut((i) + (INPUTS) + (HIDDEN));
         }
         return outputs;
     }
 
+    //set the value of a neuron, clamped to [0, 1]
+    public void setOut(int i, double o) {
+        o = o < 0 ? 0 : o;
+        o = o > 1 ? 1 : o;
+        out[base + i] = o;
+    }
+
+    //the value of a neuron, note reading a neuron clamps it to [0, 1]
+    public double getOut(int i) {
+        double o = out[base + i];
+        o = o < 0.0 ? 0.0 : o;
+        o = o > 1.0 ? 1.0 : o;
+        out[base + i] = o;
+        return o;
+    }
+
+    /**
+     * Advances every non input neuron by one step. All neurons read the
+     * values of the previous step, so the new values go into the second
+     * buffer which is swapped in at the end. Per neuron this computes
+     *
+     *   target = sigmoid(gw * sum(weight * in) + bias)
+     *   out = out + (target - out) * kp
+     *
+     * where differentiator neurons (type) use 10 * (in - previous out) as
+     * their inputs. A network in a batch is normally ticked by the batch, if
+     * it is ticked on its own the new values are copied into the batch.
+     */
     public void tick() {
-        for (int i = INPUTS; i < GENES; i++) {
-            neuralNet[i].getInputs();
-        }
-        for (int i = INPUTS; i < GENES; i++) {
-            neuralNet[i].tick();
-        }
+        ensurePacked();
+
+        double[] cur = out;
+        double[] nxt = next;
+        int b = base;
 
         for (int i = INPUTS; i < GENES; i++) {
-            neuralNet[i].back();
+            double o = cur[b + i];
+            double old = oldOut[b + i];
+            boolean differentiator = type[i];
+
+            double acc = 0;
+            for (int k = inStart[i], end = inStart[i + 1]; k < end; k++) {
+                double val = cur[b + inSrc[k]];
+                if (differentiator) {
+                    val -= old;
+                    val *= 10;
+                }
+                acc += val * inWeight[k];
+            }
+            acc *= gw[i];
+            acc += bias[i];
+            acc = FastMath.sigmoid(acc);
+
+            oldOut[b + i] = o;
+            nxt[i] = o + (acc - o) * kp[i];
         }
 
-        for (int i = INPUTS; i < GENES; i++) {
-            neuralNet[i].kp();
+        if (bound) {
+            System.arraycopy(nxt, INPUTS, cur, b + INPUTS, GENES - INPUTS);
+        } else {
+            //input neurons keep their value
+            System.arraycopy(cur, 0, nxt, 0, INPUTS);
+            out = nxt;
+            next = cur;
         }
 
+        recordBrainActivity();
+    }
+
+    //sample the activations into the brain activity file, once per tick
+    void recordBrainActivity() {
         if (recording) {
             try {
                 if (timer <= 0) {
                     timer = TIME;
                     for (int i = 0; i < GENES; i++) {
-                        brainActivity.write((int) (3 * neuralNet[i].getOut()) + ""); //0-9
+                        brainActivity.write((int) (3 * getOut(i)) + ""); //0-9
                     }
                     brainActivity.write("\n");
                 }
@@ -121,7 +354,9 @@ public class NeuralNetwork implements Cloneable {
     }
 
     public void startRecordingBrainActivity(BufferedWriter bw) {
-        brainActivity = bw;
+        //the extra buffer hands the samples to bw in chunks, which are
+        //reported to the flight recorder (see FlushEventWriter)
+        brainActivity = new BufferedWriter(new FlushEventWriter(bw));
         recording = true;
     }
 
@@ -146,6 +381,12 @@ public class NeuralNetwork implements Cloneable {
             Neuron[] temp = new Neuron[GENES];
             NeuralNetwork nn = (NeuralNetwork) super.clone();
             nn.outputs = new double[GENES];
+            nn.out = Arrays.copyOfRange(out, base, base + GENES);
+            nn.next = new double[GENES];
+            nn.oldOut = Arrays.copyOfRange(oldOut, base, base + GENES);
+            nn.base = 0;
+            nn.bound = false;
+            nn.rand = rand.split();
             for (int i = 0; i < neuralNet.length; i++) {
                 Neuron neuron = nn.neuralNet[i];
                 neuron = (Neuron) neuron.clone();
@@ -1,7 +1,16 @@
 package neural;
 
-import java.util.Random;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SplittableRandom;
 
+/**
+ * The genome of a single neuron (where its inputs come from, their weights and
+ * the neuron's parameters). The activation state is not stored here, it lives
+ * in the packed arrays of the NeuralNetwork this neuron belongs to, which also
+ * does the evaluation.
+ */
 public class Neuron implements Cloneable {
 
     public NeuralNetwork neuralNet;
@@ -9,19 +18,17 @@ public class Neuron implements Cloneable {
     public double[] weight;
     public boolean[] complement;
     public boolean[] hardValue;
-    public double[] inputs;
-    private double out;
-    private final double bias;
-    private final boolean type;
-    private final double kp;
-    private final double gw;
-    private double oldOut;
-    private double target;
-
-    public Neuron(int inputSize, int numNeurons, NeuralNetwork neuralNet, Random rand) {
+    final double bias;
+    final boolean type;
+    final double kp;
+    final double gw;
+
+    //position of this neuron in the network
+    int index;
+
+    public Neuron(int inputSize, int numNeurons, NeuralNetwork neuralNet, SplittableRandom rand) {
         this.neuralNet = neuralNet;
         inIdx = new int[inputSize];
-        inputs = new double[inputSize];
         weight = new double[inputSize];
         complement = new boolean[inputSize];
         hardValue = new boolean[inputSize];
@@ -30,9 +37,6 @@ public class Neuron implements Cloneable {
         type = rand.nextDouble() < 0.05;  
         gw = rand.nextDouble()*5;
         kp = (rand.nextDouble()*0.2)+0.9;  // [0.9, 1.1]
-        out = 0;
-        oldOut=0;
-        target = 0;
 
         int a = (int) (inputSize * 0.8);
         for (int i = 0; i < a; i++) {
@@ -50,53 +54,70 @@ public class Neuron implements Cloneable {
         }
     }
 
-    public void setOut(double o) {
-        out = o;
-        out = out < 0 ? 0 : out;
-        out = out > 1 ? 1 : out;
-    }
+    /**
+     * Reads a neuron written by write()
+     *
+     * @param in source
+     * @param neuralNet the network the neuron belongs to, its shape is used
+     * to validate the input indices
+     * @throws IOException if reading fails or the data is invalid
+     */
+    Neuron(DataInput in, NeuralNetwork neuralNet) throws IOException {
+        this.neuralNet = neuralNet;
 
-    public double getOut() {
-        out = out < 0.0 ? 0.0 : out;
-        out = out > 1.0 ? 1.0 : out;
-        return out;
-    }
+        bias = in.readDouble();
+        type = in.readBoolean();
+        kp = in.readDouble();
+        gw = in.readDouble();
 
-    public void getInputs() {
-        //get an array of all neurons in a specific neural network
-        Neuron[] neurons = neuralNet.getNeurons();
-        
-        for (int i = 0; i < inIdx.length; i++) {
-            int idx = inIdx[i];   //index of the input neuron  
-            Neuron n = neurons[idx];
-            inputs[i] = n.out;
+        int inputSize = in.readInt();
+        if (inputSize < 0 || inputSize > neuralNet.GENES) {
+            throw new IOException("Invalid neuron input size " + inputSize);
+        }
+        inIdx = new int[inputSize];
+        weight = new double[inputSize];
+        complement = new boolean[inputSize];
+        hardValue = new boolean[inputSize];
+
+        for (int i = 0; i < inputSize; i++) {
+            inIdx[i] = in.readInt();
+            if (inIdx[i] < 0 || inIdx[i] >= neuralNet.GENES) {
+                throw new IOException("Invalid neuron input index " + inIdx[i]);
+            }
+            weight[i] = in.readDouble();
+            complement[i] = in.readBoolean();
+            hardValue[i] = in.readBoolean();
         }
     }
 
-    public void tick() {
+    //the most bytes write() produces for a neuron of a network with genes
+    //neurons, the reader accepts up to genes inputs
+    static long maxBytes(int genes) {
+        return 8 + 1 + 8 + 8 + 4 + (long) genes * (4 + 8 + 1 + 1);
+    }
 
-        double acc=0;
-        for(int i=0 ; i<inputs.length; i++){
-            int idx = inIdx[i];
-            double val = inputs[i];
-            if(type){
-                val -= oldOut;
-                val *= 10;
-            }
-            acc += val*weight[i];
+    //write the parameters and then every input (index, weight,
+    //complement, hard value)
+    void write(DataOutput out) throws IOException {
+        out.writeDouble(bias);
+        out.writeBoolean(type);
+        out.writeDouble(kp);
+        out.writeDouble(gw);
+        out.writeInt(inIdx.length);
+        for (int i = 0; i < inIdx.length; i++) {
+            out.writeInt(inIdx[i]);
+            out.writeDouble(weight[i]);
+            out.writeBoolean(complement[i]);
+            out.writeBoolean(hardValue[i]);
         }
-        acc *= gw;
-        acc += bias;
-        acc = 1.0/(1.0 + Math.exp(-acc));
-        target = acc;
     }
-    
-    public void back(){
-        oldOut = out;
+
+    public void setOut(double o) {
+        neuralNet.setOut(index, o);
     }
-    
-    public void kp(){
-        out = out + (target - out)*kp;
+
+    public double getOut() {
+        return neuralNet.getOut(index);
     }
 
     @Override
@@ -106,7 +127,6 @@ public class Neuron implements Cloneable {
             n.inIdx = inIdx.clone();
             n.weight = weight.clone();
             n.complement = complement.clone();
-            n.inputs = inputs.clone();
             n.hardValue = hardValue.clone();
             return n;
         } catch (CloneNotSupportedException ex) {
@@ -0,0 +1,95 @@
+package selection;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Linear rank based sampling: agents are ranked by score and drawn with a
+ * probability that grows linearly with their rank, from (2 - pressure) / n
+ * for the worst to pressure / n for the best. Unlike fitness proportional
+ * sampling this does not depend on how far apart the scores are.
+ *
+ * Scores are small non negative integers, so the ranking is a counting sort
+ * (O(n + score range)). Only if the range is much larger than the population
+ * a comparison sort is used instead.
+ */
+public final class RankSelection implements SelectionStrategy {
+
+    private final double pressure;
+
+    /**
+     * @param pressure expected number of copies of the best agent, between
+     * 1 (uniform) and 2
+     */
+    public RankSelection(double pressure) {
+        if (pressure < 1 || pressure > 2) {
+            throw new IllegalArgumentException("Selection pressure must be between 1 and 2");
+        }
+        this.pressure = pressure;
+    }
+
+    @Override
+    public int[] select(int[] scores, int count, SplittableRandom rand) {
+        int n = scores.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        int[] order = rankWorstFirst(scores);
+
+        //cumulative weight of the ranks, rank r (0 is the worst) has weight
+        //(2 - pressure) + 2 * r * (pressure - 1) / (n - 1)
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int r = 0; r < n; r++) {
+            sum += (2 - pressure) + (n == 1 ? 0 : 2.0 * r * (pressure - 1) / (n - 1));
+            cumulative[r] = sum;
+        }
+
+        int[] parents = new int[count];
+        for (int p = 0; p < count; p++) {
+            double x = rand.nextDouble() * sum;
+            int r = Arrays.binarySearch(cumulative, x);
+            r = r < 0 ? -r - 1 : r;
+            parents[p] = order[Math.min(r, n - 1)];
+        }
+        return parents;
+    }
+
+    //indices from the worst to the best, ties are ranked worse the higher
+    //their index (the reverse of TopKSelection)
+    private static int[] rankWorstFirst(int[] scores) {
+        int n = scores.length;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int s : scores) {
+            min = Math.min(min, s);
+            max = Math.max(max, s);
+        }
+
+        int[] order = new int[n];
+        long range = (long) max - min + 1;
+        if (range <= 4L * n + 1024) {
+            int[] start = new int[(int) range + 1];
+            for (int s : scores) {
+                start[s - min + 1]++;
+            }
+            for (int b = 0; b < range; b++) {
+                start[b + 1] += start[b];
+            }
+            //within a score the higher index goes first
+            for (int i = n - 1; i >= 0; i--) {
+                order[start[scores[i] - min]++] = i;
+            }
+        } else {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) scores[i] << 32) | (0xffffffffL & (n - 1 - i));
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < n; i++) {
+                order[i] = n - 1 - (int) keys[i];
+            }
+        }
+        return order;
+    }
+}
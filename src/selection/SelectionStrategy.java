@@ -0,0 +1,21 @@
+package selection;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks the parents of the next generation from the scores of the current
+ * one. Strategies only see the scores (index i is the i-th agent of the
+ * population), so they can be compared independently of the simulation.
+ */
+public interface SelectionStrategy {
+
+    /**
+     * @param scores score of every agent of the population
+     * @param count number of parents wanted
+     * @param rand random stream of the new generation
+     * @return indices of the parents. Deterministic strategies return at most
+     * count distinct indices, best first. Sampling strategies return exactly
+     * count indices which may repeat.
+     */
+    int[] select(int[] scores, int count, SplittableRandom rand);
+}
@@ -0,0 +1,92 @@
+package selection;
+
+import java.util.SplittableRandom;
+
+/**
+ * Truncation selection: the count best agents. Uses a bounded heap so the
+ * cost is O(n log k) instead of a full sort. Ties are won by the lower index,
+ * which gives exactly the first count agents of a stable sort by score.
+ */
+public final class TopKSelection implements SelectionStrategy {
+
+    @Override
+    public int[] select(int[] scores, int count, SplittableRandom rand) {
+        return top(scores, count);
+    }
+
+    /**
+     * @param scores score of every agent
+     * @param count number of agents wanted
+     * @return the indices of the min(count, n) best agents, best first
+     */
+    public static int[] top(int[] scores, int count) {
+        int k = Math.min(count, scores.length);
+        if (k <= 0) {
+            return new int[0];
+        }
+
+        //min heap on (score, -index), the root is the worst agent kept
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size, scores);
+                size++;
+            } else if (better(i, heap[0], scores)) {
+                heap[0] = i;
+                siftDown(heap, k, scores);
+            }
+        }
+
+        //pop the worst first to fill the result from the back
+        int[] result = new int[k];
+        for (int n = k; n > 0; n--) {
+            result[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, n - 1, scores);
+        }
+        return result;
+    }
+
+    //a ranks before b
+    static boolean better(int a, int b, int[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int i, int[] scores) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(heap[parent], v, scores)) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = v;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] scores) {
+        if (size == 0) {
+            return;
+        }
+        int v = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!better(v, heap[child], scores)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = v;
+    }
+}
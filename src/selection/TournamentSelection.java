@@ -0,0 +1,42 @@
+package selection;
+
+import java.util.SplittableRandom;
+
+/**
+ * Tournament selection: every parent is the best of a few agents drawn at
+ * random (with replacement). The tournament size sets the selection pressure,
+ * the cost is O(count * size) no matter how large the population is.
+ */
+public final class TournamentSelection implements SelectionStrategy {
+
+    private final int size;
+
+    /**
+     * @param size number of agents per tournament, at least 1
+     */
+    public TournamentSelection(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Tournament size must be at least 1");
+        }
+        this.size = size;
+    }
+
+    @Override
+    public int[] select(int[] scores, int count, SplittableRandom rand) {
+        if (scores.length == 0) {
+            return new int[0];
+        }
+        int[] parents = new int[count];
+        for (int p = 0; p < count; p++) {
+            int winner = rand.nextInt(scores.length);
+            for (int t = 1; t < size; t++) {
+                int c = rand.nextInt(scores.length);
+                if (TopKSelection.better(c, winner, scores)) {
+                    winner = c;
+                }
+            }
+            parents[p] = winner;
+        }
+        return parents;
+    }
+}
@@ -1,13 +1,13 @@
 package sensor;
 
-import evolution.Debug;
 import java.awt.Color;
-import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Point2D;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import util.FastMath;
 import worldObject.Agent;
 import worldObject.Agent;
 import worldObject.CollidableObject;
@@ -22,9 +22,24 @@ public class Sensor implements Cloneable {
     protected final int ARC_LENGTH;
     protected final int OFFSET;
     protected Shape sensor;
+
+    //Field of vision as a circular sector, refreshed once per tick by
+    //updateGeometry() (y axis points up, angles are counter clockwise)
+    protected double centerX, centerY;
+    protected double radius, radiusSq;
+    protected double startDirX, startDirY;
+    protected double endDirX, endDirY;
+    protected double minX, minY, maxX, maxY;
+    protected Rectangle fovBounds = new Rectangle();
+    private static final double EDGE_EPSILON = 1e-9;
+
+    //bounding square (top left corner) and start angle of the field of
+    //vision in whole pixels and degrees, see locate()
+    private int arcX, arcY, arcStart;
     
     protected CollidableObject closesObject=null;
-    protected Double closesDistance = Double.POSITIVE_INFINITY;
+    protected double closesDistance = Double.POSITIVE_INFINITY;
+    protected double closesDistanceSq = Double.POSITIVE_INFINITY;
 
     protected double[] outputs; //food, RGB, life
     protected int numFoodCollisions = 0;
@@ -44,7 +59,17 @@ public class Sensor implements Cloneable {
         this.host = host;
     }
 
+    /**
+     * @param host the agent the eye belongs to
+     * @param offset direction of the eye relative to the heading, in degrees
+     * @param radius diameter of the field of vision
+     * @param arcLength width of the field of vision in degrees, the sector
+     * test (see intersects) only holds for less than 180
+     */
     public Sensor(Agent host, int offset, int radius, int arcLength) {
+        if (arcLength <= 0 || arcLength >= 180) {
+            throw new IllegalArgumentException("Eye arc must be between 0 and 180 degrees: " + arcLength);
+        }
         this.NUM_OUTPUTS = 4;
         this.host = host;
         this.RADIUS = radius;
@@ -79,6 +104,7 @@ public class Sensor implements Cloneable {
             sensor.host = null;
             sensor.target = null;
             sensor.outputs = new double[NUM_OUTPUTS];
+            sensor.fovBounds = new Rectangle();
             return sensor;
         } catch (CloneNotSupportedException ex) {
             Logger.getLogger(Sensor.class.getName()).log(Level.SEVERE, null, ex);
@@ -88,7 +114,8 @@ public class Sensor implements Cloneable {
     
 
     public void collision(CollidableObject cObject) {
-        if (getSensor().intersects(cObject.getBounds())) {
+        int size = cObject.getBoundsSize();
+        if (intersects(cObject.getBoundsX(), cObject.getBoundsY(), size, size)) {
             
             //*********************************************
             // Sensor vs Agent
@@ -100,12 +127,9 @@ public class Sensor implements Cloneable {
                 Agent a = (Agent) cObject;
                 
                 
-                double distance = Point2D.distance(host.getCenterX(), host.getCenterY(), a.getCenterX(), a.getCenterY());
-                distance = distance > RADIUS ? RADIUS : distance; //clamp distance to the radius of the sensor            
-                if(distance < closesDistance){
-                    closesDistance = distance;
+                if(isClosest(a)){
                     closesObject = a;
-                    outputs[0] = 1-(distance/RADIUS);
+                    outputs[0] = 1-(closesDistance/RADIUS);
                     outputs[1] = 1-(1/(1+a.score));
                     outputs[2] = 1-a.getLife();
                 }
@@ -123,12 +147,9 @@ public class Sensor implements Cloneable {
                 numFoodCollisions++;
                 Food f = (Food) cObject;
                 
-                double distance = Point2D.distance(host.getCenterX(), host.getCenterY(), f.getCenterX(), f.getCenterY());
-                distance = distance > RADIUS ? RADIUS : distance; //clamp distance to the radius of the sensor            
-                if(distance < closesDistance){
-                    closesDistance = distance;
+                if(isClosest(f)){
                     closesObject = f;
-                    outputs[3] = 1-(distance/RADIUS);
+                    outputs[3] = 1-(closesDistance/RADIUS);
                 }
                 
 
@@ -140,6 +161,38 @@ public class Sensor implements Cloneable {
         }
     }
 
+    /**
+     * Checks if o is closer to the host than everything seen since the last
+     * reset, if so closesDistance becomes its distance (clamped to the
+     * radius of the sensor). With FastMath enabled the squared distances are
+     * compared first so the square root is only taken for a new closest
+     * object.
+     *
+     * @param o object in sight
+     * @return true if o is the new closest object
+     */
+    private boolean isClosest(CollidableObject o) {
+        double distance;
+        if (FastMath.isEnabled()) {
+            double dx = host.getCenterX() - o.getCenterX();
+            double dy = host.getCenterY() - o.getCenterY();
+            double distanceSq = dx * dx + dy * dy;
+            if (distanceSq >= closesDistanceSq) {
+                return false;
+            }
+            distance = Math.sqrt(distanceSq);
+        } else {
+            distance = Point2D.distance(host.getCenterX(), host.getCenterY(), o.getCenterX(), o.getCenterY());
+        }
+        distance = distance > RADIUS ? RADIUS : distance; //clamp distance to the radius of the sensor
+        if (distance < closesDistance) {
+            closesDistance = distance;
+            closesDistanceSq = distance * distance;
+            return true;
+        }
+        return false;
+    }
+
     public void updateOutputs() {
 
         if (numFoodCollisions > 0) {
@@ -157,7 +210,13 @@ public class Sensor implements Cloneable {
     }
 
 
-    public void draw(Graphics2D g2d) {
+    /**
+     * The fill of the field of vision: green for food, blue for agents and
+     * transparent while nothing is in sight
+     *
+     * @return the color as ARGB
+     */
+    public int getColor() {
 
         updateOutputs();
 
@@ -172,22 +231,7 @@ public class Sensor implements Cloneable {
 //            blue = (float) outputs[3];
 //        }
 
-        //get updated sensor data
-        Shape s = getSensor();
-
-        if (Debug.drawFOV) {
-            //draw sensor
-            g2d.setColor(new Color(red, green, blue, alpha));
-            g2d.fill(s);
-        }
-
-        if (Debug.drawFOVWireFrame) {
-            //draw outline
-            g2d.setColor(new Color(0.0f, 0.0f, 1.0f, 0.4f));
-            g2d.draw(s);
-        }
-        
-
+        return new Color(red, green, blue, alpha).getRGB();
     }
 
     public void reset() {
@@ -197,24 +241,250 @@ public class Sensor implements Cloneable {
         numAgentCollisions = 0;
         numFoodCollisions = 0;
         closesDistance = Double.POSITIVE_INFINITY;
+        closesDistanceSq = Double.POSITIVE_INFINITY;
         closesObject = null;
     }
 
-    public Shape getSensor() {
+    /**
+     * The smallest rectangle containing the field of vision. Objects that do
+     * not touch this rectangle can not be seen by this sensor. Only valid
+     * after updateGeometry() has been called for the current tick.
+     *
+     * @return bounds of the field of vision
+     */
+    public Rectangle getFieldOfViewBounds() {
+        return fovBounds;
+    }
 
-        //get the top left corner of the agent
-        int x = (int) host.getCenterX() - (RADIUS / 2);
-        int y = (int) host.getCenterY() - (RADIUS / 2);
+    /**
+     * Recomputes the sector describing the field of vision from the host's
+     * position and heading. This has to be called after the host moved and
+     * before collision() is used. It describes the same region as the Arc2D
+     * returned by getSensor().
+     */
+    public void updateGeometry() {
+
+        locate();
+        int eyeAngle = arcStart;
+
+        radius = RADIUS / 2.0;
+        radiusSq = radius * radius;
+        centerX = arcX + radius;
+        centerY = arcY + radius;
+
+        startDirX = cos(eyeAngle);
+        startDirY = cos(eyeAngle - 90);
+        endDirX = cos(eyeAngle + ARC_LENGTH);
+        endDirY = cos(eyeAngle + ARC_LENGTH - 90);
+
+        //bounding box: the center, both end points of the arc and
+        //every axis extreme of the circle that lies inside the arc
+        minX = maxX = centerX;
+        minY = maxY = centerY;
+        includeInBounds(startDirX, startDirY);
+        includeInBounds(endDirX, endDirY);
+        if (inArc(1, 0)) {
+            includeInBounds(1, 0);
+        }
+        if (inArc(0, 1)) {
+            includeInBounds(0, 1);
+        }
+        if (inArc(-1, 0)) {
+            includeInBounds(-1, 0);
+        }
+        if (inArc(0, -1)) {
+            includeInBounds(0, -1);
+        }
 
-        //centered with the direction the agent is facing
-        int eyeAngle = (int) ((-host.getAngle() - (ARC_LENGTH / 2)) % 360);
+        int bx = (int) Math.floor(minX);
+        int by = (int) Math.floor(minY);
+        fovBounds.setBounds(bx, by, (int) Math.ceil(maxX) - bx, (int) Math.ceil(maxY) - by);
+    }
 
-        //rotate by an offset
-        eyeAngle += OFFSET;
+    //cosine of a whole number of degrees, exact on the axes so that edges
+    //lying on an axis do not pick up rounding errors
+    private static double cos(int degrees) {
+        degrees %= 360;
+        if (degrees < 0) {
+            degrees += 360;
+        }
+        switch (degrees) {
+            case 0:
+                return 1;
+            case 90:
+            case 270:
+                return 0;
+            case 180:
+                return -1;
+            default:
+                return Math.cos(Math.toRadians(degrees));
+        }
+    }
+
+    //grow the bounding box by the point on the circle in direction (dx, dy)
+    private void includeInBounds(double dx, double dy) {
+        double px = centerX + dx * radius;
+        double py = centerY - dy * radius;
+        minX = Math.min(minX, px);
+        maxX = Math.max(maxX, px);
+        minY = Math.min(minY, py);
+        maxY = Math.max(maxY, py);
+    }
+
+    //is the direction (dx, dy) between the start and the end direction,
+    //the straight edges count as inside (like Arc2D) and get a little slack
+    //so points lying exactly on an edge are not lost to rounding
+    //note: the arc is less than 180 degrees, see the constructor
+    private boolean inArc(double dx, double dy) {
+        return startDirX * dy - startDirY * dx >= -EDGE_EPSILON
+                && dx * endDirY - dy * endDirX >= -EDGE_EPSILON;
+    }
+
+    //is the point (in world coordinates) inside the sector, the circle
+    //itself does not count as inside (like Arc2D)
+    private boolean inSector(double px, double py) {
+        double dx = px - centerX;
+        double dy = centerY - py;
+        return dx * dx + dy * dy < radiusSq && inArc(dx, dy);
+    }
+
+    /**
+     * Exact test for the sector against an axis aligned rectangle. The two
+     * shapes intersect if one contains the other or if their boundaries
+     * cross, which is checked using the corners, the two straight edges and
+     * the arc of the sector.
+     *
+     * @param r the rectangle to test
+     * @return true if the rectangle touches the field of vision
+     */
+    public boolean intersects(Rectangle r) {
+        return intersects(r.x, r.y, r.width, r.height);
+    }
+
+    //intersects(Rectangle) for the rectangle at x, y
+    public boolean intersects(int x, int y, int width, int height) {
+
+        double x0 = x;
+        double y0 = y;
+        double x1 = x0 + width;
+        double y1 = y0 + height;
+
+        //bounding box of the sector
+        if (x0 > maxX || x1 < minX || y0 > maxY || y1 < minY) {
+            return false;
+        }
+
+        //closest point of the rectangle to the center of the circle
+        double nx = centerX < x0 ? x0 : (centerX > x1 ? x1 : centerX);
+        double ny = centerY < y0 ? y0 : (centerY > y1 ? y1 : centerY);
+        double dx = nx - centerX;
+        double dy = ny - centerY;
+        if (dx * dx + dy * dy >= radiusSq) {
+            return false;
+        }
+
+        //the rectangle holds the apex of the sector
+        if (nx == centerX && ny == centerY) {
+            return true;
+        }
+
+        //a corner of the rectangle is inside the sector
+        if (inSector(x0, y0) || inSector(x1, y0)
+                || inSector(x0, y1) || inSector(x1, y1)) {
+            return true;
+        }
+
+        //one of the straight edges of the sector crosses the rectangle
+        if (segmentIntersects(startDirX, startDirY, x0, y0, x1, y1)
+                || segmentIntersects(endDirX, endDirY, x0, y0, x1, y1)) {
+            return true;
+        }
+
+        //the arc bulges into the rectangle through one of its sides
+        return arcCrossesVertical(x0, y0, y1) || arcCrossesVertical(x1, y0, y1)
+                || arcCrossesHorizontal(y0, x0, x1) || arcCrossesHorizontal(y1, x0, x1);
+    }
+
+    //does the edge from the center in direction (dirX, dirY) touch the rectangle
+    private boolean segmentIntersects(double dirX, double dirY,
+            double x0, double y0, double x1, double y1) {
+
+        //clip the parametric segment center + t * dir * radius, t in [0,1]
+        double ddx = dirX * radius;
+        double ddy = -dirY * radius;
+        double tMin = 0;
+        double tMax = 1;
+
+        if (ddx == 0) {
+            if (centerX < x0 || centerX > x1) {
+                return false;
+            }
+        } else {
+            double ta = (x0 - centerX) / ddx;
+            double tb = (x1 - centerX) / ddx;
+            tMin = Math.max(tMin, Math.min(ta, tb));
+            tMax = Math.min(tMax, Math.max(ta, tb));
+        }
+
+        if (ddy == 0) {
+            if (centerY < y0 || centerY > y1) {
+                return false;
+            }
+        } else {
+            double ta = (y0 - centerY) / ddy;
+            double tb = (y1 - centerY) / ddy;
+            tMin = Math.max(tMin, Math.min(ta, tb));
+            tMax = Math.min(tMax, Math.max(ta, tb));
+        }
+
+        return tMin <= tMax + EDGE_EPSILON;
+    }
+
+    //does the arc cross the vertical line x between y0 and y1
+    private boolean arcCrossesVertical(double x, double y0, double y1) {
+        double dx = x - centerX;
+        double h = radiusSq - dx * dx;
+        if (h <= 0) {
+            return false;
+        }
+        h = Math.sqrt(h);
+        return (centerY - h >= y0 && centerY - h <= y1 && inArc(dx, h))
+                || (centerY + h >= y0 && centerY + h <= y1 && inArc(dx, -h));
+    }
+
+    //does the arc cross the horizontal line y between x0 and x1
+    private boolean arcCrossesHorizontal(double y, double x0, double x1) {
+        double dy = centerY - y;
+        double w = radiusSq - dy * dy;
+        if (w <= 0) {
+            return false;
+        }
+        w = Math.sqrt(w);
+        return (centerX - w >= x0 && centerX - w <= x1 && inArc(-w, dy))
+                || (centerX + w >= x0 && centerX + w <= x1 && inArc(w, dy));
+    }
+
+    public Shape getSensor() {
 
         //update the Arc Object to represent the field of vision
-        ((Arc2D) sensor).setArc(x, y, RADIUS, RADIUS, eyeAngle, ARC_LENGTH, Arc2D.PIE);
+        locate();
+        ((Arc2D) sensor).setArc(arcX, arcY, RADIUS, RADIUS, arcStart, ARC_LENGTH, Arc2D.PIE);
 
         return sensor;
     }
+
+    //place the field of vision around the host, the sector of
+    //updateGeometry() and the Arc2D of getSensor() share this rounding
+    private void locate() {
+
+        //get the top left corner of the agent
+        arcX = host.getCenterX() - (RADIUS / 2);
+        arcY = host.getCenterY() - (RADIUS / 2);
+
+        //centered with the direction the agent is facing
+        arcStart = (int) ((-host.getAngle() - (ARC_LENGTH / 2)) % 360);
+
+        //rotate by an offset
+        arcStart += OFFSET;
+    }
 }
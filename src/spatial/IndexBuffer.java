@@ -0,0 +1,55 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive int indices. Query results from the spatial
+ * index are written into one of these so no boxing or allocation happens in
+ * the per tick loops.
+ */
+public final class IndexBuffer {
+
+    private int[] data;
+    private int size;
+
+    public IndexBuffer() {
+        this(64);
+    }
+
+    public IndexBuffer(int capacity) {
+        data = new int[capacity];
+        size = 0;
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = value;
+    }
+
+    public int get(int i) {
+        return data[i];
+    }
+
+    public void set(int i, int value) {
+        data[i] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    //keep only the first size values
+    public void truncate(int size) {
+        this.size = Math.min(this.size, size);
+    }
+
+    public void sort() {
+        Arrays.sort(data, 0, size);
+    }
+}
@@ -0,0 +1,111 @@
+package spatial;
+
+import java.util.Arrays;
+import java.util.List;
+import worldObject.CollidableObject;
+
+/**
+ * Uniform grid used to find objects that might overlap a rectangle without
+ * looking at every object in the world.
+ *
+ * Every object is stored in exactly one cell, the one holding the top left
+ * corner of its bounds, so the cell size must be at least as large as the
+ * largest object. Objects outside of the world are clamped into the border
+ * cells. Queries return a superset of the objects whose bounds intersect the
+ * query rectangle, sorted by their index in the list the grid was built from.
+ */
+public final class SpatialGrid {
+
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+
+    //objects bucketed by cell (counting sort), cell c owns
+    //entries[cellStart[c]] up to entries[cellStart[c + 1]]
+    private final int[] cellStart;
+    private int[] entries = new int[0];
+    private int[] cellOf = new int[0];
+
+    public SpatialGrid(int worldSize, int cellSize) {
+        this.cellSize = cellSize;
+        this.cols = (worldSize + cellSize - 1) / cellSize;
+        this.rows = cols;
+        this.cellStart = new int[cols * rows + 1];
+    }
+
+    public void build(List<? extends CollidableObject> objects) {
+
+        int n = objects.size();
+        if (entries.length < n) {
+            entries = new int[n];
+            cellOf = new int[n];
+        }
+
+        //count the objects in every cell
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < n; i++) {
+            CollidableObject o = objects.get(i);
+            int c = row((int) o.getY()) * cols + col((int) o.getX());
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
+
+        //prefix sum into start offsets
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        //scatter the indices, cellStart[c] is used as a cursor and
+        //ends up pointing at the start of cell c + 1
+        for (int i = 0; i < n; i++) {
+            entries[cellStart[cellOf[i]]++] = i;
+        }
+        for (int c = cols * rows; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    /**
+     * Collects the indices of all objects that may intersect the given
+     * rectangle.
+     *
+     * @param x left edge of the query
+     * @param y top edge of the query
+     * @param width width of the query
+     * @param height height of the query
+     * @param out receives the candidate indices in ascending order
+     */
+    public void query(int x, int y, int width, int height, IndexBuffer out) {
+        out.clear();
+
+        //an object may start up to one cell to the left/top of the query
+        int c0 = col(x - cellSize);
+        int c1 = col(x + width);
+        int r0 = row(y - cellSize);
+        int r1 = row(y + height);
+
+        for (int r = r0; r <= r1; r++) {
+            int from = cellStart[r * cols + c0];
+            int to = cellStart[r * cols + c1 + 1];
+            for (int e = from; e < to; e++) {
+                out.add(entries[e]);
+            }
+        }
+        out.sort();
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    private int col(int x) {
+        int c = Math.floorDiv(x, cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(int y) {
+        int r = Math.floorDiv(y, cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
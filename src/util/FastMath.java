@@ -0,0 +1,137 @@
+package util;
+
+/**
+ * Table based approximations of the transcendental functions in the per tick
+ * loops. Disabled by default, in which case every method computes exactly
+ * what the simulation computed before (same expressions, bit identical).
+ *
+ * The tables are sampled uniformly and linearly interpolated, so the error of
+ * f between two samples h apart is at most h^2 / 8 * max |f''|. Bounds
+ * (absolute error, enabled):
+ *
+ *   sigmoid(x)  step 1/128 on [-16, 16], |f''| <= 0.0963   error <= 1.0e-6
+ *               (outside the table the result is 0 or 1, error < 1.2e-7)
+ *   tanh(x)     step 1/256 on [0, 8], |f''| <= 0.770       error <= 1.5e-6
+ *               (outside the table the result is +-1, error < 2.3e-7)
+ *   cosDeg(d)   step 1/8 degree over a full turn, |f''| <= 1
+ *   sinDeg(d)                                              error <= 6.0e-7
+ *
+ * The switch is meant to be set once before a run. It is volatile so a
+ * change (e.g. over JMX) reaches the worker threads of the parallel phases,
+ * a tick that is running while it changes may mix both modes.
+ */
+public final class FastMath {
+
+    private static volatile boolean enabled = false;
+
+    private static final double SIGMOID_RANGE = 16;
+    private static final int SIGMOID_STEPS_PER_UNIT = 128;
+    private static final double[] SIGMOID;
+
+    private static final double TANH_RANGE = 8;
+    private static final int TANH_STEPS_PER_UNIT = 256;
+    private static final double[] TANH;
+
+    private static final int STEPS_PER_DEGREE = 8;
+    private static final int TURN = 360 * STEPS_PER_DEGREE;
+    private static final double[] SIN;
+
+    static {
+        int n = (int) (2 * SIGMOID_RANGE * SIGMOID_STEPS_PER_UNIT);
+        SIGMOID = new double[n + 2];
+        for (int i = 0; i < SIGMOID.length; i++) {
+            double x = -SIGMOID_RANGE + (double) i / SIGMOID_STEPS_PER_UNIT;
+            SIGMOID[i] = 1.0 / (1.0 + Math.exp(-x));
+        }
+
+        n = (int) (TANH_RANGE * TANH_STEPS_PER_UNIT);
+        TANH = new double[n + 2];
+        for (int i = 0; i < TANH.length; i++) {
+            TANH[i] = Math.tanh((double) i / TANH_STEPS_PER_UNIT);
+        }
+
+        //a quarter turn more so cos can be read as sin shifted by 90 degrees
+        SIN = new double[TURN + TURN / 4 + 1];
+        for (int i = 0; i < SIN.length; i++) {
+            SIN[i] = Math.sin(Math.toRadians((double) i / STEPS_PER_DEGREE));
+        }
+    }
+
+    private FastMath() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enable true to use the tables, false for exact math
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    //the logistic function 1 / (1 + e^-x)
+    public static double sigmoid(double x) {
+        if (!enabled) {
+            return 1.0 / (1.0 + Math.exp(-x));
+        }
+        if (x <= -SIGMOID_RANGE) {
+            return 0;
+        }
+        if (x >= SIGMOID_RANGE) {
+            return 1;
+        }
+        double t = (x + SIGMOID_RANGE) * SIGMOID_STEPS_PER_UNIT;
+        int i = (int) t;
+        double a = SIGMOID[i];
+        return a + (SIGMOID[i + 1] - a) * (t - i);
+    }
+
+    public static double tanh(double x) {
+        if (!enabled) {
+            return Math.tanh(x);
+        }
+        double ax = x < 0 ? -x : x;
+        double r;
+        if (ax >= TANH_RANGE) {
+            r = 1;
+        } else {
+            double t = ax * TANH_STEPS_PER_UNIT;
+            int i = (int) t;
+            double a = TANH[i];
+            r = a + (TANH[i + 1] - a) * (t - i);
+        }
+        return x < 0 ? -r : r;
+    }
+
+    //cosine of an angle in degrees
+    public static double cosDeg(double degrees) {
+        if (!enabled) {
+            return Math.cos(Math.toRadians(degrees));
+        }
+        return lookupSin(degrees * STEPS_PER_DEGREE + TURN / 4);
+    }
+
+    //sine of an angle in degrees
+    public static double sinDeg(double degrees) {
+        if (!enabled) {
+            return Math.sin(Math.toRadians(degrees));
+        }
+        return lookupSin(degrees * STEPS_PER_DEGREE);
+    }
+
+    //t is the angle in table steps, any value
+    private static double lookupSin(double t) {
+        double f = Math.floor(t / TURN);
+        t -= f * TURN;
+        int i = (int) t;
+        if (i >= TURN) {
+            //t was a hair below a multiple of a turn
+            i = 0;
+            t = 0;
+        }
+        double a = SIN[i];
+        return a + (SIN[i + 1] - a) * (t - i);
+    }
+}
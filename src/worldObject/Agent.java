@@ -1,16 +1,13 @@
 package worldObject;
 
-import evolution.EvolutionWorld;
-import evolution.Debug;
+import evolution.SimulationEngine;
 import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.io.BufferedWriter;
-import java.util.Random;
+import java.util.SplittableRandom;
 import neural.NeuralNetwork;
-import neural.Neuron;
 import sensor.Sensor;
+import util.FastMath;
 
 public class Agent extends CollidableObject implements Cloneable, Comparable<Agent> {
 
@@ -19,7 +16,7 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
     protected final double MAX_TURN_SPEED;
 
     //parameters 
-    private final Random rand;
+    private SplittableRandom rand;
     public int speciesId;
     public int generation = 1;
     public double spikePercent;
@@ -30,6 +27,11 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
     //scoring
     public int score = 0;
 
+    public static final int SIZE = 30;
+
+    //life lost every tick just for being alive
+    public static final double METABOLISM = 0.0007;
+
     //neural network
     final int INPUTS;
     final int HIDDEN;
@@ -38,11 +40,23 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
     public NeuralNetwork neuralNet;
     public double[] inputs; //input buffer   
 
-    //constructor
-    public Agent(int id) {
+    //bounding box of all the eyes
+    private Rectangle fovBounds = new Rectangle();
+
+    //optional structure of arrays storage, while bound the kinematic
+    //state lives in store[slot] instead of the fields (see AgentStore)
+    private AgentStore store = null;
+    private int slot = -1;
+
+    /**
+     * @param id species identifier
+     * @param rand random stream owned by this agent from now on, its network
+     * and its clones get streams split off it
+     */
+    public Agent(int id, SplittableRandom rand) {
 
         super(CollidableObject.AGENT);
-        rand = EvolutionWorld.rand;
+        this.rand = rand;
 
         //init sensors
         int offset = 11;
@@ -62,7 +76,7 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
         HIDDEN = 12;
         OUTPUTS = 3;
         GENES = INPUTS + HIDDEN + OUTPUTS;
-        neuralNet = new NeuralNetwork(INPUTS, HIDDEN, OUTPUTS);
+        neuralNet = new NeuralNetwork(INPUTS, HIDDEN, OUTPUTS, rand.split());
 
         //used as a buffer for updating the neural network
         inputs = new double[INPUTS];
@@ -80,9 +94,9 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
         spikePercent = 0.5;
 
         //init size and position
-        setX((rand.nextDouble() * EvolutionWorld.BORDER_SIZE));
-        setY((rand.nextDouble() * EvolutionWorld.BORDER_SIZE));
-        setSize(30);
+        setX((rand.nextDouble() * SimulationEngine.BORDER_SIZE));
+        setY((rand.nextDouble() * SimulationEngine.BORDER_SIZE));
+        setSize(SIZE);
 
         //init color 
         int red = rand.nextInt(256);
@@ -111,19 +125,20 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
         if (other.getObjectType() == CollidableObject.AGENT) {
             Agent a = (Agent) other;
 
-            a.decreaseLife(0.13 * spikePercent + 0.1 * (speed / MAX_SPEED));
+            a.decreaseLife(0.13 * spikePercent + 0.1 * (getSpeed() / MAX_SPEED));
 
             //if you kill another bot
-            if (a.lifePercent <= 0) {
+            if (a.getLife() <= 0) {
 
                 //mark the other agent as killed
                 //a.wasKilled = true;
                 score += a.score;
                 a.score = 0;
 
-                lifePercent += 0.3;
-                lifePercent += 0.2 * spikePercent;
-                lifePercent = lifePercent > 1 ? 1 : lifePercent;
+                double life = getLife();
+                life += 0.3;
+                life += 0.2 * spikePercent;
+                setLife(life > 1 ? 1 : life);
 
                 //Preditors get points for killing another Agent
                 //pointsUntilSpawn -= (AMOUNT_UNTIL_SPAWN / 4) + 1;
@@ -145,10 +160,12 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
     //****************************************************************
     // NEURAL NETWORK INPUTS
     //****************************************************************
-    private void neuralNetworkInputs() {
+    //public so that all networks can be ticked in one batch between
+    //the inputs and act() (see NetworkBatch)
+    public void neuralNetworkInputs() {
 
         //(self) life percentage
-        inputs[0] = lifePercent;
+        inputs[0] = getLife();
         inputs[1] = 1;
         inputs[2] = 1 - (1 / (1 + score));
 
@@ -163,13 +180,12 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
 
         //update neural network
         neuralNet.setInputs(inputs);
-        neuralNet.tick();
     }
 
     //****************************************************************
     // NEURAL NETWORK OUTPUTS
     //****************************************************************
-    private void neuralNetworkOutputs() {
+    public void neuralNetworkOutputs() {
 
         double[] out = neuralNet.getOutputs();
 
@@ -190,133 +206,205 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
         }
     }
 
-    public void update() {
-
-        //decrease life be a little bit eah frame
-        decreaseLife(0.0007);
+    //feed the senses into the neural network and tick it
+    public void think() {
 
         //Send the neural network input data
         neuralNetworkInputs();
+        neuralNet.tick();
+    }
+
+    //steer and move according to the neural network
+    public void act() {
 
         //Get output data from the neural network
         neuralNetworkOutputs();
+    }
+
+    //refresh the field of vision of every eye, must be called after moving
+    public void updateFieldOfView() {
+        fovBounds.setBounds(0, 0, -1, -1);
+        for (Sensor eye : sensors) {
+            eye.updateGeometry();
+            fovBounds.add(eye.getFieldOfViewBounds());
+        }
+    }
+
+    //union of the field of vision of all eyes, see Sensor.getFieldOfViewBounds
+    public Rectangle getFieldOfViewBounds() {
+        return fovBounds;
+    }
+
+    public Agent mutate() {
+        if (rand.nextDouble() <= mutateRate) {
+            neuralNet.mutate();
+        }
+        return this;
+    }
 
+    public Sensor[] getEyes() {
+        return sensors;
     }
 
-    public void draw(Graphics g) {
+    public void move(double d) {
+        double angle = getAngle();
+        setSpeed(MAX_SPEED * d);
+        setX(getX() + (MAX_SPEED * d * FastMath.cosDeg(angle)));
+        setY(getY() + (MAX_SPEED * d * FastMath.sinDeg(angle)));
+    }
 
-        //create a new graphics object
-        Graphics2D g2d = (Graphics2D) g.create();
+    //d must be between 0 and 1
+    public void turn(double d) {
+        double turn = (d * 2) - 1;
+        setAngle((getAngle() + MAX_TURN_SPEED * turn) % 360);
+    }
 
-        //affine transformation
-        g2d.translate(getCenterX(), getCenterY());
-        g2d.rotate(Math.toRadians(angle));
+    public void spike(double d) {
+        spikePercent = d;
+    }
 
-        //draw the agent
-        g2d.setColor(color);
-        g2d.drawLine(0, 0, (int) (3 * size * spikePercent), 0);
-        g2d.fillOval((int) -size / 2, (int) -size / 2, (int) size, (int) size);
+    public void setLife(double d) {
+        if (store == null) {
+            this.lifePercent = d;
+        } else {
+            store.life[slot] = d;
+        }
+    }
 
-        //draw a boarder around the agent (makes the agent is more visible)
-        Color boarder = Debug.screenInv ? Color.WHITE : Color.BLACK;
-        g2d.setColor(boarder);
-        g2d.drawOval((int) -size / 2, (int) -size / 2, (int) size, (int) size);
+    //********************************************************************
+    // Structure of arrays storage (see AgentStore)
+    //********************************************************************
+    void bind(AgentStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
     }
 
-    public void drawFieldOFVision(Graphics2D g) {
-        for (Sensor eye : sensors) {
-            eye.draw(g);
+    //copy the state out of the store back into the fields
+    void unbind() {
+        if (store != null) {
+            x = store.x[slot];
+            y = store.y[slot];
+            angle = store.angle[slot];
+            speed = store.speed[slot];
+            lifePercent = store.life[slot];
+            size = store.size[slot];
+            store = null;
+            slot = -1;
         }
     }
 
-    public void drawNeuralNetwork(Graphics2D g2d) {
-        Neuron[] neurons = neuralNet.getNeurons();
-        int boxSize = 20;
+    public boolean isBound() {
+        return store != null;
+    }
 
-        int offsetX = -80;
-        int offsetY = 25;
-        for (int i = 0; i < INPUTS; i++) {
-            double out = neurons[i].getOut();
-            g2d.setColor(new Color((int) (out * 255), (int) (out * 255), (int) (out * 255)));
-            g2d.fillRect(i * boxSize + (int) getX() + offsetX, (int) getSize() + (int) getY() + offsetY, boxSize, boxSize);
-            g2d.setColor(Color.BLACK);
-            g2d.drawRect(i * boxSize + (int) getX() + offsetX, (int) getSize() + (int) getY() + offsetY, boxSize, boxSize);
+    private void setAngle(double angle) {
+        if (store == null) {
+            this.angle = angle;
+        } else {
+            store.angle[slot] = angle;
+        }
+    }
+
+    private void setSpeed(double speed) {
+        if (store == null) {
+            this.speed = speed;
+        } else {
+            store.speed[slot] = speed;
+        }
+    }
 
+    @Override
+    public void setX(double x) {
+        if (store == null) {
+            this.x = x;
+        } else {
+            store.x[slot] = x;
         }
-        for (int i = 0; i < HIDDEN; i++) {
-            double out = neurons[i + INPUTS].getOut();
-            g2d.setColor(new Color((int) (out * 255), (int) (out * 255), (int) (out * 255)));
-            g2d.fillRect(i * boxSize + (int) getX() + offsetX, (int) getSize() + (int) getY() + offsetY + boxSize, boxSize, boxSize);
-            g2d.setColor(Color.BLACK);
-            g2d.drawRect(i * boxSize + (int) getX() + offsetX, (int) getSize() + (int) getY() + offsetY + boxSize, boxSize, boxSize);
+    }
+
+    @Override
+    public void setY(double y) {
+        if (store == null) {
+            this.y = y;
+        } else {
+            store.y[slot] = y;
         }
-        for (int i = 0; i < OUTPUTS; i++) {
-            double out = neurons[i + INPUTS + HIDDEN].getOut();
-            g2d.setColor(new Color((int) (out * 255), (int) (out * 255), (int) (out * 255)));
-            g2d.fillRect(i * boxSize + (int) getX() + offsetX, (int) getSize() + (int) getY() + offsetY + (2 * boxSize), boxSize, boxSize);
-            g2d.setColor(Color.BLACK);
-            g2d.drawRect(i * boxSize + (int) getX() + offsetX, (int) getSize() + (int) getY() + offsetY + (2 * boxSize), boxSize, boxSize);
+    }
+
+    @Override
+    public void setSize(int size) {
+        if (store == null) {
+            this.size = size;
+        } else {
+            store.size[slot] = size;
         }
     }
 
-    public void drawHealthBar(Graphics g) {
+    @Override
+    public void decreaseLife(double x) {
+        double life = getLife() - x;
+        setLife(life < 0 ? 0 : life);
+    }
 
-        Graphics2D g2d = (Graphics2D) g.create();
+    @Override
+    public void increaseLife(double x) {
+        double life = getLife() + x;
+        setLife(life > 1 ? 1 : life);
+    }
 
-        final int HB_WIDTH = 50; //heath bar
-        final int HB_HEIGHT = 12;//heath bar
+    @Override
+    public double getX() {
+        return store == null ? x : store.x[slot];
+    }
 
-        int offset = 20;
-        Color boarder = Debug.screenInv ? Color.WHITE : Color.BLACK;
-        g2d.setColor(Color.BLACK);
-        g2d.fillRect((int) (-size + getX() + offset), (int) (-1 * size + getY()), HB_WIDTH, HB_HEIGHT);
-        g2d.setColor(Color.GREEN);
-        g2d.fillRect((int) (-size + getX() + offset), (int) (-1 * size + getY()), (int) (lifePercent * HB_WIDTH), HB_HEIGHT);
-        g2d.setColor(boarder);
-        g2d.drawRect((int) (-size + getX() + offset), (int) (-1 * size + getY()), HB_WIDTH, HB_HEIGHT);
+    @Override
+    public double getY() {
+        return store == null ? y : store.y[slot];
+    }
 
-        int offsetX = 60;
-        int offsetY = 10;
-        if (Debug.agentDebug) {
-            g2d.drawString("Life: " + (int) (100 * lifePercent) + "%", (int) (getX() + offsetX), (int) (getY() + offsetY));
-            g2d.drawString("Score: " + score, (int) (getX() + offsetX), (int) (getY() + offsetY + 20));
-            //g2d.drawString("Gen: " + generation, (int) (getX() + 20), (int) (getY() + 70));
-            //g2d.drawString("PUS: " + score, (int) (getX() + 20), (int) (getY() + 90));
-            //g2d.drawString("SP: " + (int) (100 * spikePercent) + "%", (int) (getX() + 20), (int) (getY() + 110));
-            //g2d.drawString("ID: " + speciesId, (int) (getX() + 20), (int) (getY() + 130));
-        }
+    @Override
+    public double getAngle() {
+        return store == null ? angle : store.angle[slot];
+    }
+
+    @Override
+    public double getSpeed() {
+        return store == null ? speed : store.speed[slot];
+    }
 
+    @Override
+    public double getLife() {
+        return store == null ? lifePercent : store.life[slot];
     }
 
-    public Agent mutate() {
-        if (rand.nextDouble() <= mutateRate) {
-            neuralNet.mutate();
-        }
-        return this;
+    @Override
+    public double getSize() {
+        return store == null ? size : store.size[slot];
     }
 
-    public Sensor[] getEyes() {
-        return sensors;
+    @Override
+    public int getCenterX() {
+        return store == null ? super.getCenterX() : (int) (store.x[slot] + store.size[slot] / 2);
     }
 
-    public void move(double d) {
-        speed = MAX_SPEED * d;
-        setX(getX() + (MAX_SPEED * d * Math.cos(Math.toRadians(angle))));
-        setY(getY() + (MAX_SPEED * d * Math.sin(Math.toRadians(angle))));
+    @Override
+    public int getCenterY() {
+        return store == null ? super.getCenterY() : (int) (store.y[slot] + store.size[slot] / 2);
     }
 
-    //d must be between 0 and 1
-    public void turn(double d) {
-        double turn = (d * 2) - 1;
-        angle = (angle + MAX_TURN_SPEED * turn) % 360;
+    @Override
+    public int getBoundsX() {
+        return store == null ? super.getBoundsX() : (int) store.x[slot];
     }
 
-    public void spike(double d) {
-        spikePercent = d;
+    @Override
+    public int getBoundsY() {
+        return store == null ? super.getBoundsY() : (int) store.y[slot];
     }
 
-    public void setLife(double d) {
-        this.lifePercent = d;
+    @Override
+    public int getBoundsSize() {
+        return store == null ? super.getBoundsSize() : store.size[slot];
     }
 
     @Override
@@ -339,12 +427,13 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
     public Object clone() {
         try {
             Agent a = (Agent) super.clone();
-            a.setX(getX() + (rand.nextInt(600) - 300));
-            a.setY(getY() + (rand.nextInt(600) - 300));
-            a.bounds = new Rectangle((int) a.x, (int) a.y, size, size);
+            a.unbind();
+            a.rand = rand.split();
+            a.setX(getX() + (a.rand.nextInt(600) - 300));
+            a.setY(getY() + (a.rand.nextInt(600) - 300));
             a.lifePercent = 1;
             a.score = 0;
-            a.angle = EvolutionWorld.rand.nextInt(360);
+            a.angle = a.rand.nextInt(360);
             a.neuralNet = (NeuralNetwork) a.neuralNet.clone();
             a.generation++;
             a.inputs = new double[INPUTS];
@@ -355,6 +444,7 @@ public class Agent extends CollidableObject implements Cloneable, Comparable<Age
                 a.sensors[i].setHost(a);
             }
             a.inputs = inputs.clone();
+            a.fovBounds = new Rectangle();
             return a.mutate();
         } catch (CloneNotSupportedException ex) {
         }
@@ -0,0 +1,112 @@
+package worldObject;
+
+import java.util.Arrays;
+
+/**
+ * Optional structure of arrays storage for the kinematic state of agents.
+ * Position, heading, speed, life and size of every bound agent are kept in
+ * parallel primitive arrays indexed by slot, the Agent object itself only
+ * acts as a view. This keeps the state of large populations in contiguous
+ * memory so per tick passes over all agents stay cache friendly.
+ *
+ * Agents are bound with add() and get their state copied back into their
+ * own fields by clear(), so an agent works the same with or without a store.
+ */
+public final class AgentStore {
+
+    double[] x;
+    double[] y;
+    double[] angle;
+    double[] speed;
+    double[] life;
+    int[] size;
+    private Agent[] agents;
+    private int count;
+
+    public AgentStore() {
+        this(64);
+    }
+
+    public AgentStore(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        angle = new double[capacity];
+        speed = new double[capacity];
+        life = new double[capacity];
+        size = new int[capacity];
+        agents = new Agent[capacity];
+        count = 0;
+    }
+
+    /**
+     * Moves the state of the agent into the next free slot and turns the
+     * agent into a view of that slot
+     *
+     * @param a an agent that is not bound to any store
+     * @return the slot of the agent
+     */
+    public int add(Agent a) {
+        if (count == x.length) {
+            grow();
+        }
+        int slot = count++;
+        x[slot] = a.x;
+        y[slot] = a.y;
+        angle[slot] = a.angle;
+        speed[slot] = a.speed;
+        life[slot] = a.lifePercent;
+        size[slot] = a.size;
+        agents[slot] = a;
+        a.bind(this, slot);
+        return slot;
+    }
+
+    //copy the state back into every agent and empty the store
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            agents[i].unbind();
+            agents[i] = null;
+        }
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Agent get(int slot) {
+        return agents[slot];
+    }
+
+    //same as calling decreaseLife on every agent
+    public void decreaseLifeAll(double amount) {
+        for (int i = 0; i < count; i++) {
+            double l = life[i] - amount;
+            life[i] = l < 0 ? 0 : l;
+        }
+    }
+
+    /**
+     * Same test as CollidableObject.checkCollision (intersection of the
+     * integer bounds) without going through Rectangle objects
+     *
+     * @param i slot of the first agent
+     * @param j slot of the second agent
+     * @return true if the bounds of the two agents intersect
+     */
+    public boolean checkCollision(int i, int j) {
+        return CollidableObject.intersects((int) x[i], (int) y[i], size[i], size[i],
+                (int) x[j], (int) y[j], size[j], size[j]);
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        life = Arrays.copyOf(life, capacity);
+        size = Arrays.copyOf(size, capacity);
+        agents = Arrays.copyOf(agents, capacity);
+    }
+}
@@ -17,7 +17,6 @@ public abstract class CollidableObject {
 
     //Attributes
     protected int type;   
-    protected Rectangle bounds; 
     protected Color color;         
     protected double lifePercent;  
     protected int size;           
@@ -32,7 +31,6 @@ public abstract class CollidableObject {
         this.type = type;
         this.x = x;
         this.y = y;
-        this.bounds = new Rectangle((int) x, (int) y, size, size);
         this.color = new Color(0, 0, 0);
         this.lifePercent = 0;
     }
@@ -42,7 +40,39 @@ public abstract class CollidableObject {
 
     //check for collisions
     public static boolean checkCollision(CollidableObject c1, CollidableObject c2) {
-        return c1.getBounds().intersects(c2.getBounds());
+        int s = c2.getBoundsSize();
+        return c1.intersects(c2.getBoundsX(), c2.getBoundsY(), s, s);
+    }
+
+    /**
+     * Same test as getBounds().intersects(x, y, width, height), without
+     * making a rectangle. This is what the simulation uses.
+     *
+     * @param x left edge
+     * @param y top edge
+     * @param width width
+     * @param height height
+     * @return true if the bounds of this object intersect the rectangle
+     */
+    public boolean intersects(int x, int y, int width, int height) {
+        int s = getBoundsSize();
+        return intersects(getBoundsX(), getBoundsY(), s, s, x, y, width, height);
+    }
+
+    //Rectangle.intersects for two rectangles given by corner and size
+    public static boolean intersects(int tx, int ty, int tw, int th, int rx, int ry, int rw, int rh) {
+        if (rw <= 0 || rh <= 0 || tw <= 0 || th <= 0) {
+            return false;
+        }
+        rw += rx;
+        rh += ry;
+        tw += tx;
+        th += ty;
+        //      overflow || intersect
+        return ((rw < rx || rw > tx)
+                && (rh < ry || rh > ty)
+                && (tw < tx || tw > rx)
+                && (th < ty || th > ry));
     }
 
     //********************************************************************
@@ -109,6 +139,10 @@ public abstract class CollidableObject {
         return (int) (y + size / 2);
     }
 
+    public Color getColor() {
+        return color;
+    }
+
     public int getObjectType() {
         return type;
     }
@@ -117,12 +151,23 @@ public abstract class CollidableObject {
         return size;
     }
 
+    //a new rectangle on every call, for painting and tools, the simulation
+    //tests the bounds with intersects
     public Rectangle getBounds() {
-        bounds.width = size;
-        bounds.height = size;
-        bounds.x = (int) x;
-        bounds.y = (int) y;
-        return bounds;
+        return new Rectangle(getBoundsX(), getBoundsY(), getBoundsSize(), getBoundsSize());
+    }
+
+    //left and top edge of the bounds in whole pixels
+    public int getBoundsX() {
+        return (int) x;
+    }
+
+    public int getBoundsY() {
+        return (int) y;
+    }
+
+    public int getBoundsSize() {
+        return size;
     }
 
     public double getLife() {
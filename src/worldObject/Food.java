@@ -1,52 +1,44 @@
 package worldObject;
 
-import evolution.Debug;
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
+import util.FastMath;
 
+/**
+ * A view of one occupied cell of a FoodField. The life of the food is kept in
+ * the field, views are pooled and rebound by the field.
+ */
 public class Food extends CollidableObject {
 
     final double CONSUME_AMOUNT = 0.2;
-    final double REGENERATE_AMOUNT = 0.001;
-
-    public boolean isAlive;
 
     public static final int SIZE = 20;
 
-    public Food(int x, int y) {
+    private final FoodField field;
+    private int cell = -1;
+
+    Food(FoodField field) {
         super(CollidableObject.FOOD);
-        //SIZE = size;
-        lifePercent = 1;
-        isAlive = true;
-        setCenterX(x);
-        setCenterY(y);
+        this.field = field;
         setSize(SIZE);
     }
 
-    public void draw(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setColor(new Color(0, 255, 0, (int) (0.8 * 255 * lifePercent)));
-        g2d.fillRect((int) getX(), (int) getY(), SIZE, SIZE);
-//BETA ---------------------------------------------------------------------------
-        Color debugColor = Debug.screenInv ? Color.WHITE : Color.BLACK;
-        g2d.setColor(debugColor);
-        g2d.drawRect((int) getX(), (int) getY(), SIZE, SIZE);
+    //turn this view into the food at the given cell (x, y is its top left)
+    void bind(int cell, int x, int y) {
+        this.cell = cell;
+        setX(x);
+        setY(y);
     }
 
     public double getFoodPercent() {
-        return lifePercent;
+        return field.getLife(cell);
     }
 
-    public double age() {
-        if (lifePercent <= 0.1) {
-            lifePercent -= REGENERATE_AMOUNT;
-        }
-        if(lifePercent <= 0){
-            lifePercent=0;
-            isAlive = false;
-        }
-        return REGENERATE_AMOUNT;
+    @Override
+    public double getLife() {
+        return field.getLife(cell);
+    }
+
+    public boolean isAlive() {
+        return field.getLife(cell) > 0;
     }
 
     public double consume(Agent a) {
@@ -54,16 +46,16 @@ public class Food extends CollidableObject {
         
         double value = 1 - a.spikePercent;
         value = (value*2)-1;
-        value = Math.tanh(2*value);
+        value = FastMath.tanh(2*value);
         value = (value+1)/2;
         
         double c = CONSUME_AMOUNT * value;
         
-        lifePercent -= c;
+        double lifePercent = field.getLife(cell) - c;
         lifePercent = lifePercent < 0 ? 0 : lifePercent;
+        field.setLife(cell, lifePercent);
 
         if (lifePercent == 0) {
-            isAlive = false;
             return 0;
         }
 
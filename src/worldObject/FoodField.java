@@ -0,0 +1,273 @@
+package worldObject;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import spatial.IndexBuffer;
+
+/**
+ * All food of a world. Food only ever sits on the Food.SIZE lattice, so it is
+ * stored as a dense field with one cell per lattice point: the life of every
+ * cell in a primitive array and the occupied cells in a bit set. A cell holds
+ * at most one food, spawning onto an occupied cell refills it.
+ *
+ * Food objects are only views of a cell (see Food). They are created when a
+ * cell becomes occupied and go back into a pool when it is emptied, so the
+ * number of objects never exceeds the capacity and memory stays flat over
+ * long runs. Note a view of removed food is reused for the next spawn.
+ *
+ * Food only decays once its life has dropped to DECAY_THRESHOLD, and life only
+ * drops when food is consumed. Instead of visiting every cell each tick, the
+ * life of a decaying cell is stored together with the tick it was last
+ * brought up to date, the decay since then is worked out when the life is
+ * read (by repeating the same subtractions, so the values are exactly the
+ * ones of a per tick update) and only stored when the life is set, so
+ * reading food never writes to the field. The tick at which a decaying cell runs out is known in
+ * advance, it is kept in a hashed timing wheel so purge() only looks at the
+ * cells that expire in the current tick. The per tick work is therefore
+ * proportional to the expiring food, not to all food.
+ */
+public final class FoodField implements Iterable<Food> {
+
+    //food below this much life starts to decay
+    static final double DECAY_THRESHOLD = 0.1;
+    static final double DECAY_AMOUNT = 0.001;
+
+    private final int cols;
+    double[] life;
+    private final BitSet occupied;
+    private final Food[] views;
+    private final ArrayDeque<Food> pool = new ArrayDeque<>();
+    private int count = 0;
+    private int capacity;
+
+    //decay bookkeeping: the number of age() calls so far, the tick the life
+    //of each decaying cell is up to date with, the tick each decaying cell
+    //runs out (NEVER if it does not), the wheel of expiry ticks and the
+    //cells that were consumed to nothing in this tick
+    private static final long NEVER = -1;
+    private static final int WHEEL_SLOTS = 128;
+    private long now = 0;
+    private final long[] since;
+    private final long[] expiry;
+    private final IndexBuffer[] wheel = new IndexBuffer[WHEEL_SLOTS];
+    private final IndexBuffer emptied = new IndexBuffer();
+
+    /**
+     * @param worldSize width and height of the world
+     * @param capacity maximum number of food items, spawns beyond it fail
+     */
+    public FoodField(int worldSize, int capacity) {
+        this.cols = worldSize / Food.SIZE;
+        this.life = new double[cols * cols];
+        this.occupied = new BitSet(cols * cols);
+        this.views = new Food[cols * cols];
+        this.capacity = capacity;
+        this.since = new long[cols * cols];
+        this.expiry = new long[cols * cols];
+        Arrays.fill(expiry, NEVER);
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new IndexBuffer(8);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //a lower capacity only affects future spawns
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Puts full food into the cell at the given lattice point
+     *
+     * @param x left edge, a multiple of Food.SIZE inside the world
+     * @param y top edge, a multiple of Food.SIZE inside the world
+     * @return false if the field is at capacity and the cell was empty
+     */
+    public boolean spawn(int x, int y) {
+        int cell = (y / Food.SIZE) * cols + x / Food.SIZE;
+        if (!occupied.get(cell)) {
+            if (count >= capacity) {
+                return false;
+            }
+            occupied.set(cell);
+            count++;
+            Food view = pool.isEmpty() ? new Food(this) : pool.pop();
+            view.bind(cell, (cell % cols) * Food.SIZE, (cell / cols) * Food.SIZE);
+            views[cell] = view;
+        }
+        life[cell] = 1;
+        expiry[cell] = NEVER;
+        return true;
+    }
+
+    //remove all food
+    public void clear() {
+        for (int cell = occupied.nextSetBit(0); cell >= 0; cell = occupied.nextSetBit(cell + 1)) {
+            remove(cell);
+        }
+        for (IndexBuffer slot : wheel) {
+            slot.clear();
+        }
+        emptied.clear();
+    }
+
+    /**
+     * Food that is almost used up slowly decays, this advances the decay of
+     * all food by one tick. Only the tick counter changes, the decay of
+     * each cell is applied lazily (see getLife).
+     */
+    public void age() {
+        now++;
+    }
+
+    //remove all food without life left, that is the food that was consumed
+    //to nothing or whose decay runs out in this tick
+    public void purge() {
+        for (int k = 0; k < emptied.size(); k++) {
+            int cell = emptied.get(k);
+            if (occupied.get(cell) && life[cell] <= 0) {
+                remove(cell);
+            }
+        }
+        emptied.clear();
+
+        //entries of cells that were rescheduled or removed are stale, the
+        //ones that are more than a turn of the wheel away stay
+        IndexBuffer slot = wheel[(int) (now % WHEEL_SLOTS)];
+        int kept = 0;
+        for (int k = 0; k < slot.size(); k++) {
+            int cell = slot.get(k);
+            if (expiry[cell] == now) {
+                expiry[cell] = NEVER;
+                life[cell] = 0;
+                remove(cell);
+            } else if (expiry[cell] > now && expiry[cell] % WHEEL_SLOTS == now % WHEEL_SLOTS) {
+                slot.set(kept++, cell);
+            }
+        }
+        slot.truncate(kept);
+    }
+
+    private void remove(int cell) {
+        occupied.clear(cell);
+        count--;
+        life[cell] = 0;
+        expiry[cell] = NEVER;
+        pool.push(views[cell]);
+        views[cell] = null;
+    }
+
+    /**
+     * The life of the food in a cell, with the decay up to the current tick
+     * applied. Nothing is written, so any number of threads may read. The
+     * decay takes at most DECAY_THRESHOLD / DECAY_AMOUNT steps.
+     *
+     * @param cell an occupied cell
+     * @return life between 0 and 1
+     */
+    double getLife(int cell) {
+        double l = life[cell];
+        if (l > DECAY_THRESHOLD || l <= 0) {
+            return l;
+        }
+        for (long t = since[cell]; t < now; t++) {
+            l -= DECAY_AMOUNT;
+            if (l <= 0) {
+                return 0;
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Sets the life of the food in a cell, which (re)schedules its decay
+     *
+     * @param cell an occupied cell
+     * @param l the new life, at most the current life
+     */
+    void setLife(int cell, double l) {
+        life[cell] = l;
+        since[cell] = now;
+        expiry[cell] = NEVER;
+        if (l <= 0) {
+            emptied.add(cell);
+        } else if (l <= DECAY_THRESHOLD) {
+            //the tick in which the decay takes the last of it
+            long t = now;
+            do {
+                t++;
+                l -= DECAY_AMOUNT;
+            } while (l > 0);
+            expiry[cell] = t;
+            wheel[(int) (t % WHEEL_SLOTS)].add(cell);
+        }
+    }
+
+    /**
+     * Finds the occupied cells whose food intersects the given rectangle
+     * (same test as Rectangle.intersects), in row major order. This is a
+     * direct lookup of the lattice cells the rectangle covers.
+     *
+     * @param x left edge of the rectangle
+     * @param y top edge of the rectangle
+     * @param width width of the rectangle
+     * @param height height of the rectangle
+     * @param out receives the cells, cleared first
+     */
+    public void query(int x, int y, int width, int height, IndexBuffer out) {
+        out.clear();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        //cell c intersects if c * SIZE < x + width and c * SIZE + SIZE > x
+        int c0 = Math.max(0, Math.floorDiv(x - Food.SIZE, Food.SIZE) + 1);
+        int c1 = Math.min(cols - 1, Math.floorDiv(x + width - 1, Food.SIZE));
+        int r0 = Math.max(0, Math.floorDiv(y - Food.SIZE, Food.SIZE) + 1);
+        int r1 = Math.min(cols - 1, Math.floorDiv(y + height - 1, Food.SIZE));
+        for (int r = r0; r <= r1; r++) {
+            int end = r * cols + c1;
+            for (int cell = occupied.nextSetBit(r * cols + c0); cell >= 0 && cell <= end;
+                    cell = occupied.nextSetBit(cell + 1)) {
+                out.add(cell);
+            }
+        }
+    }
+
+    //the food in an occupied cell
+    public Food get(int cell) {
+        return views[cell];
+    }
+
+    //occupied cells in row major order
+    @Override
+    public Iterator<Food> iterator() {
+        return new Iterator<Food>() {
+            int cell = occupied.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return cell >= 0;
+            }
+
+            @Override
+            public Food next() {
+                if (cell < 0) {
+                    throw new NoSuchElementException();
+                }
+                Food f = views[cell];
+                cell = occupied.nextSetBit(cell + 1);
+                return f;
+            }
+        };
+    }
+}
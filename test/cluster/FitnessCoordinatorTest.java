@@ -0,0 +1,132 @@
+package cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import worldObject.Agent;
+
+/**
+ * Workers on the loopback address, running in this process. Losing a worker
+ * in the middle of a job must not change the scores.
+ */
+public class FitnessCoordinatorTest {
+
+    private static final long SEED = 20240612L;
+    private static final int BATCHES = 3;
+    private static final int BATCH_SIZE = 5;
+
+    private FitnessCoordinator coordinator;
+    private final List<Socket> workers = new ArrayList<>();
+    private final ExecutorService threads = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Before
+    public void setUp() throws IOException {
+        coordinator = new FitnessCoordinator(0, 60000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        coordinator.close();
+        for (Socket s : workers) {
+            s.close();
+        }
+        threads.shutdownNow();
+    }
+
+    @Test(timeout = 120000)
+    public void lostWorkerDoesNotChangeTheScores() throws Exception {
+        List<List<Agent>> batches = batches();
+
+        //the first worker takes a job and is killed while it works on it
+        Future<List<int[]>> result = threads.submit(() -> coordinator.evaluate(batches, SEED));
+        while (coordinator.getQueuedJobs() != BATCHES) {
+            Thread.sleep(1);
+        }
+        Socket killed = startWorker();
+        while (coordinator.getQueuedJobs() != BATCHES - 1) {
+            Thread.sleep(1);
+        }
+        killed.close();
+
+        //the job goes back into the queue for the second one
+        startWorker();
+        List<int[]> scores = result.get();
+        assertEquals(1, coordinator.getRequeuedJobs());
+
+        //the same evaluation on the remaining worker alone
+        List<int[]> single = coordinator.evaluate(batches, SEED);
+        assertEquals(1, coordinator.getWorkerCount());
+        assertEquals(BATCHES, scores.size());
+        for (int b = 0; b < BATCHES; b++) {
+            assertArrayEquals("batch " + b, single.get(b), scores.get(b));
+        }
+        assertTrue("nothing was scored", scores.stream().flatMapToInt(Arrays::stream).sum() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void oversizedResultDropsTheWorker() throws Exception {
+        //a worker that answers its first job with a huge count
+        Socket socket = new Socket("127.0.0.1", coordinator.getPort());
+        workers.add(socket);
+        threads.submit(() -> {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(FitnessCoordinator.PROTOCOL_VERSION);
+            int id = in.readInt();
+            in.readLong();
+            in.readFully(new byte[in.readInt()]);
+            out.writeInt(id);
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+            return null;
+        });
+
+        Future<List<int[]>> result = threads.submit(() -> coordinator.evaluate(batches(), SEED));
+        while (coordinator.getRequeuedJobs() == 0) {
+            Thread.sleep(1);
+        }
+        startWorker();
+        assertEquals(BATCHES, result.get().size());
+    }
+
+    private Socket startWorker() throws IOException {
+        Socket socket = new Socket("127.0.0.1", coordinator.getPort());
+        workers.add(socket);
+        threads.submit(() -> {
+            FitnessWorker.serve(socket);
+            return null;
+        });
+        return socket;
+    }
+
+    private static List<List<Agent>> batches() {
+        SplittableRandom rand = new SplittableRandom(SEED);
+        List<List<Agent>> batches = new ArrayList<>();
+        for (int b = 0; b < BATCHES; b++) {
+            List<Agent> batch = new ArrayList<>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(new Agent(b * BATCH_SIZE + i, rand.split()));
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,52 @@
+package cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * A worker must refuse frames no batch can produce instead of allocating
+ * them.
+ */
+public class FitnessWorkerTest {
+
+    @Test(timeout = 60000)
+    public void oversizedJobIsRefused() throws Exception {
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Future<Void> coordinator = threads.submit(() -> {
+                try (Socket s = server.accept()) {
+                    DataInputStream in = new DataInputStream(s.getInputStream());
+                    DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                    assertEquals(FitnessCoordinator.PROTOCOL_VERSION, in.readInt());
+                    out.writeInt(0);
+                    out.writeLong(1);
+                    out.writeInt(GenomeCodec.MAX_BATCH_BYTES + 1);
+                    out.flush();
+                    //wait for the worker to hang up
+                    in.read();
+                }
+                return null;
+            });
+
+            try {
+                FitnessWorker.run("127.0.0.1", server.getLocalPort());
+                fail("the job was accepted");
+            } catch (IOException ex) {
+                assertEquals("Invalid job length " + (GenomeCodec.MAX_BATCH_BYTES + 1), ex.getMessage());
+            }
+            coordinator.get();
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
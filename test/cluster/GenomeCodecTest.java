@@ -0,0 +1,63 @@
+package cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import worldObject.Agent;
+
+/**
+ * A decoded batch must behave exactly like the agents it was encoded from.
+ */
+public class GenomeCodecTest {
+
+    @Test
+    public void decodedNetworksComputeTheSameOutputs() throws IOException {
+        SplittableRandom rand = new SplittableRandom(13);
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Agent a = new Agent(i, rand.split());
+            a.generation = i * 3;
+            a.spike(rand.nextDouble());
+            //mutated genomes, so the encoding is not just the random one
+            a.neuralNet.mutate();
+            agents.add(a);
+        }
+
+        byte[] data = GenomeCodec.encodeBatch(agents);
+        assertTrue(data.length <= GenomeCodec.maxBatchBytes(agents.size()));
+        List<Agent> decoded = GenomeCodec.decodeBatch(data, new SplittableRandom(1));
+        assertEquals(agents.size(), decoded.size());
+
+        for (int n = 0; n < agents.size(); n++) {
+            Agent a = agents.get(n);
+            Agent b = decoded.get(n);
+            assertEquals(a.speciesId, b.speciesId);
+            assertEquals(a.generation, b.generation);
+            assertEquals(a.spikePercent, b.spikePercent, 0);
+            assertEquals(a.mutateRate, b.mutateRate, 0);
+
+            for (int t = 0; t < 100; t++) {
+                double[] inputs = new double[a.neuralNet.INPUTS];
+                for (int i = 0; i < inputs.length; i++) {
+                    inputs[i] = rand.nextDouble();
+                }
+                a.neuralNet.setInputs(inputs);
+                b.neuralNet.setInputs(inputs);
+                a.neuralNet.tick();
+                b.neuralNet.tick();
+                assertArrayEquals("agent " + n + " tick " + t, a.neuralNet.getOutputs(), b.neuralNet.getOutputs(), 0);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void oversizedBatchIsRefused() throws IOException {
+        byte[] data = {0x7f, 0, 0, 0};
+        GenomeCodec.decodeBatch(data, new SplittableRandom(1));
+    }
+}
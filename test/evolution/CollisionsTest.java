@@ -0,0 +1,221 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import spatial.IndexBuffer;
+import worldObject.Agent;
+import worldObject.CollidableObject;
+import worldObject.Food;
+import worldObject.FoodField;
+
+/**
+ * The grid based collision phase must find the same contacts, in the same
+ * order, as testing every pair, and resolving them after the detection must
+ * end in the same state as the original loop that resolved every contact as
+ * soon as it was found.
+ */
+public class CollisionsTest {
+
+    private static final long SEED = 20240611L;
+    private static final int AGENTS = 60;
+
+    @Test
+    public void gridFindsTheContactsOfAllPairs() {
+        assertSameContacts(false);
+    }
+
+    @Test
+    public void gridFindsTheContactsOfAllPairsWithStore() {
+        assertSameContacts(true);
+    }
+
+    @Test
+    public void resolutionMatchesTheInterleavedLoop() {
+        assertSameResolution(false);
+    }
+
+    @Test
+    public void resolutionMatchesTheInterleavedLoopWithStore() {
+        assertSameResolution(true);
+    }
+
+    private static void assertSameContacts(boolean store) {
+        SimulationEngine engine = crowdedWorld(store);
+        try {
+            List<String> expected = allPairsContacts(engine);
+            engine.collisions();
+            List<String> actual = gridContacts(engine);
+
+            assertTrue("too few contacts to compare: " + expected.size(), expected.size() > 50);
+            assertTrue("no contacts in the border cells", expected.stream().anyMatch(c -> c.contains("outside")));
+            assertEquals(expected, actual);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static void assertSameResolution(boolean store) {
+        SimulationEngine expected = crowdedWorld(false);
+        SimulationEngine actual = crowdedWorld(store);
+        try {
+            interleavedCollisions(expected);
+            actual.collisions();
+
+            List<Agent> e = expected.getAgents();
+            List<Agent> a = actual.getAgents();
+            int kills = 0;
+            for (int i = 0; i < e.size(); i++) {
+                String at = "agent " + i;
+                assertEquals(at, e.get(i).getLife(), a.get(i).getLife(), 0);
+                assertEquals(at, e.get(i).score, a.get(i).score);
+                if (e.get(i).getLife() <= 0) {
+                    kills++;
+                }
+            }
+
+            Iterator<Food> f = actual.getFood().iterator();
+            int eaten = 0;
+            for (Food food : expected.getFood()) {
+                Food other = f.next();
+                assertEquals(food(food), food(other));
+                assertEquals(food(food), food.getLife(), other.getLife(), 0);
+                if (food.getLife() < 1) {
+                    eaten++;
+                }
+            }
+            assertFalse(f.hasNext());
+
+            assertTrue("no agent was killed", kills > 0);
+            assertTrue("no food was eaten", eaten > 0);
+        } finally {
+            expected.shutdown();
+            actual.shutdown();
+        }
+    }
+
+    /**
+     * A seeded world with the agents packed into two corners so there are
+     * many contacts: one around the top left corner of the world, one around
+     * the bottom right corner, partly outside the world where the grid
+     * clamps them into the border cells. The food is packed into the same
+     * corners.
+     */
+    static SimulationEngine crowdedWorld(boolean store) {
+        SimulationEngine engine = new SimulationEngine(SEED);
+        engine.setPopulationSize(AGENTS);
+        engine.init();
+        engine.setAgentStoreEnabled(store);
+
+        SplittableRandom rand = new SplittableRandom(SEED);
+        int far = SimulationEngine.BORDER_SIZE - 150;
+        List<Agent> agents = engine.getAgents();
+        for (int i = 0; i < agents.size(); i++) {
+            Agent a = agents.get(i);
+            int origin = i % 2 == 0 ? -60 : far;
+            //on a coarse lattice, so edges often just touch
+            a.setX(origin + 5 * rand.nextInt(50));
+            a.setY(origin + 5 * rand.nextInt(50));
+            a.spike(rand.nextDouble());
+            a.setLife(rand.nextDouble(0.01, 1));
+        }
+
+        FoodField food = engine.getFood();
+        food.clear();
+        int cells = 200 / Food.SIZE;
+        int last = SimulationEngine.BORDER_SIZE - 200;
+        for (int k = 0; k < 40; k++) {
+            food.spawn(rand.nextInt(cells) * Food.SIZE, rand.nextInt(cells) * Food.SIZE);
+            food.spawn(last + rand.nextInt(cells) * Food.SIZE, last + rand.nextInt(cells) * Food.SIZE);
+        }
+        return engine;
+    }
+
+    //the contacts of a plain i < j double loop over the agents, then of
+    //every agent with every food
+    static List<String> allPairsContacts(SimulationEngine engine) {
+        List<String> contacts = new ArrayList<>();
+        List<Agent> agents = engine.getAgents();
+        for (int i = 0; i < agents.size() - 1; i++) {
+            for (int j = i + 1; j < agents.size(); j++) {
+                if (CollidableObject.checkCollision(agents.get(i), agents.get(j))) {
+                    contacts.add(agent(agents, i) + " " + agent(agents, j));
+                }
+            }
+        }
+        for (int i = 0; i < agents.size(); i++) {
+            for (Food f : engine.getFood()) {
+                if (CollidableObject.checkCollision(agents.get(i), f)) {
+                    contacts.add(agent(agents, i) + " " + food(f));
+                }
+            }
+        }
+        return contacts;
+    }
+
+    //the detection and resolution of collisions as it was before the grid:
+    //every pair is tested and resolved at once
+    private static void interleavedCollisions(SimulationEngine engine) {
+        List<Agent> agents = engine.getAgents();
+
+        //Agent vs Agent
+        for (int i = 0; i < agents.size() - 1; i++) {
+            for (int j = i + 1; j < agents.size(); j++) {
+                Agent agent1 = agents.get(i);
+                Agent agent2 = agents.get(j);
+                if (CollidableObject.checkCollision(agent1, agent2)) {
+                    agent1.handleCollision(agent2);
+                    agent2.handleCollision(agent1);
+                }
+            }
+        }
+
+        //Agent vs Food
+        for (int i = 0; i < agents.size(); i++) {
+            for (Food food : engine.getFood()) {
+                Agent agent = agents.get(i);
+                if (CollidableObject.checkCollision(agent, food)) {
+                    agent.handleCollision(food);
+                    food.handleCollision(agent);
+                }
+            }
+        }
+    }
+
+    //the contacts the last collisions() resolved, in the order it did
+    private static List<String> gridContacts(SimulationEngine engine) {
+        List<String> contacts = new ArrayList<>();
+        List<Agent> agents = engine.getAgents();
+        for (int i = 0; i < agents.size(); i++) {
+            IndexBuffer hits = engine.getAgentContacts(i);
+            for (int k = 0; k < hits.size(); k++) {
+                contacts.add(agent(agents, i) + " " + agent(agents, hits.get(k)));
+            }
+        }
+        for (int i = 0; i < agents.size(); i++) {
+            IndexBuffer hits = engine.getFoodContacts(i);
+            for (int k = 0; k < hits.size(); k++) {
+                contacts.add(agent(agents, i) + " " + food(engine.getFood().get(hits.get(k))));
+            }
+        }
+        return contacts;
+    }
+
+    private static String agent(List<Agent> agents, int i) {
+        Agent a = agents.get(i);
+        int x = a.getBoundsX();
+        int y = a.getBoundsY();
+        boolean outside = x < 0 || y < 0 || x + Agent.SIZE > SimulationEngine.BORDER_SIZE
+                || y + Agent.SIZE > SimulationEngine.BORDER_SIZE;
+        return "agent " + i + " (" + x + "," + y + ")" + (outside ? " outside" : "");
+    }
+
+    private static String food(Food f) {
+        return "food (" + f.getBoundsX() + "," + f.getBoundsY() + ")";
+    }
+}
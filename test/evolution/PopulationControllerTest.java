@@ -0,0 +1,95 @@
+package evolution;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The controller against a fake clock, on which a tick costs a fixed time per
+ * agent, so the tick rate of every population size is known in advance.
+ */
+public class PopulationControllerTest {
+
+    private final SimulationEngine engine = new SimulationEngine(11);
+    //population size of every generation (numbered from 1)
+    private final Map<Long, Integer> sizes = new HashMap<>();
+
+    @After
+    public void shutdown() {
+        engine.shutdown();
+    }
+
+    //every second reading (the end of a tick) is later by the cost of the
+    //tick
+    private LongSupplier clock(long nanosPerAgent) {
+        long[] now = {0};
+        boolean[] inTick = {false};
+        return () -> {
+            if (inTick[0]) {
+                now[0] += nanosPerAgent * engine.getAgents().size();
+            }
+            inTick[0] = !inTick[0];
+            return now[0];
+        };
+    }
+
+    private List<PopulationController.Adjustment> run(PopulationController controller, int generations) {
+        while (engine.getGenerationsCompleted() < generations) {
+            controller.step();
+            sizes.putIfAbsent(engine.getGenerationsCompleted() + 1, engine.getAgents().size());
+        }
+        return controller.getAdjustments();
+    }
+
+    //every adjustment stays in the bounds, takes at most a factor of two
+    //and names the first generation that has the new size
+    private void assertAdjustments(List<PopulationController.Adjustment> adjustments, int min, int max) {
+        for (PopulationController.Adjustment a : adjustments) {
+            assertTrue(a.toString(), a.newAgents >= min && a.newAgents <= max);
+            assertTrue(a.toString(), a.newAgents <= 2 * a.oldAgents && 2 * a.newAgents >= a.oldAgents);
+            assertEquals(a.toString(), a.oldAgents, (int) sizes.get(a.generation - 1));
+            assertEquals(a.toString(), a.newAgents, (int) sizes.get(a.generation));
+        }
+    }
+
+    @Test
+    public void growsUpToTheMaximum() {
+        //15 agents run at 6667 ticks/sec, 1000 are wanted
+        PopulationController controller = new PopulationController(engine, 1000, 5, 50, clock(10000));
+        List<PopulationController.Adjustment> adjustments = run(controller, 4);
+
+        assertAdjustments(adjustments, 5, 50);
+        assertEquals(2, adjustments.size());
+        assertEquals(2, adjustments.get(0).generation);
+        assertEquals(30, adjustments.get(0).newAgents);
+        assertEquals(50, adjustments.get(1).newAgents);
+        assertEquals(50, engine.getAgents().size());
+        assertEquals(6667, adjustments.get(0).measuredTicksPerSecond, 1);
+    }
+
+    @Test
+    public void shrinksDownToTheMinimum() {
+        //15 agents run at 67 ticks/sec
+        PopulationController controller = new PopulationController(engine, 1000, 5, 50, clock(1000000));
+        List<PopulationController.Adjustment> adjustments = run(controller, 4);
+
+        assertAdjustments(adjustments, 5, 50);
+        assertEquals(2, adjustments.size());
+        assertEquals(8, adjustments.get(0).newAgents);
+        assertEquals(5, adjustments.get(1).newAgents);
+        assertEquals(5, engine.getAgents().size());
+    }
+
+    @Test
+    public void leavesARateWithinTheToleranceAlone() {
+        //15 agents run at 1053 ticks/sec, 5% above the target
+        PopulationController controller = new PopulationController(engine, 1000, 5, 50, clock(63333));
+        assertTrue(run(controller, 3).isEmpty());
+        assertEquals(15, engine.getAgents().size());
+    }
+}
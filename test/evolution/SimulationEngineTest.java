@@ -0,0 +1,84 @@
+package evolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import worldObject.Agent;
+
+/**
+ * Runs of the engine must only depend on the seed, not on how the tick is
+ * executed.
+ */
+public class SimulationEngineTest {
+
+    private static final long SEED = 20240607L;
+
+    @Test
+    public void threadCountDoesNotChangeTheRun() {
+        SimulationEngine serial = new SimulationEngine(SEED);
+        SimulationEngine parallel = new SimulationEngine(SEED);
+        serial.setThreads(1);
+        parallel.setThreads(4);
+        try {
+            assertSameRun(serial, parallel);
+        } finally {
+            serial.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void threadCountDoesNotChangeTheRunWithStoreAndBatch() {
+        SimulationEngine serial = new SimulationEngine(SEED);
+        SimulationEngine parallel = new SimulationEngine(SEED);
+        serial.setThreads(1);
+        parallel.setThreads(4);
+        parallel.setAgentStoreEnabled(true);
+        parallel.setBatchedInference(true);
+        try {
+            assertSameRun(serial, parallel);
+        } finally {
+            serial.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void emigrantsArePickedByTheSelectionStrategy() {
+        SimulationEngine engine = new SimulationEngine(SEED);
+        engine.setSelection((scores, count, rand) -> new int[]{2, 2, 0}, 3, 1);
+        List<Agent> population = new ArrayList<>(engine.getAgents());
+        engine.startNextGeneration();
+
+        //a parent picked twice is sent once
+        List<Agent> emigrants = engine.emigrants(3);
+        assertEquals(2, emigrants.size());
+        assertEquals(population.get(2).speciesId, emigrants.get(0).speciesId);
+        assertEquals(population.get(0).speciesId, emigrants.get(1).speciesId);
+        engine.shutdown();
+    }
+
+    //steps both engines through a generation and a half, comparing every
+    //agent after every tick
+    private static void assertSameRun(SimulationEngine expected, SimulationEngine actual) {
+        long ticks = expected.getGenerationTicks() * 3 / 2;
+        for (long tick = 0; tick < ticks; tick++) {
+            expected.update();
+            actual.update();
+            assertEquals(expected.getGeneration(), actual.getGeneration());
+            List<Agent> e = expected.getAgents();
+            List<Agent> a = actual.getAgents();
+            assertEquals("agents at tick " + tick, e.size(), a.size());
+            for (int i = 0; i < e.size(); i++) {
+                String at = "agent " + i + " at tick " + tick;
+                assertEquals(at, e.get(i).getX(), a.get(i).getX(), 0);
+                assertEquals(at, e.get(i).getY(), a.get(i).getY(), 0);
+                assertEquals(at, e.get(i).getAngle(), a.get(i).getAngle(), 0);
+                assertEquals(at, e.get(i).getLife(), a.get(i).getLife(), 0);
+                assertEquals(at, e.get(i).score, a.get(i).score);
+            }
+            assertEquals("food at tick " + tick, expected.getFood().size(), actual.getFood().size());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package neural;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/**
+ * A batch must tick its networks exactly like their own tick() does, while
+ * the activations live in the batch and after they are handed back.
+ */
+public class NetworkBatchTest {
+
+    private static final int NETWORKS = 20;
+
+    //every network and a clone of it that is ticked on its own
+    private final List<NeuralNetwork> batched = new ArrayList<>();
+    private final List<NeuralNetwork> alone = new ArrayList<>();
+    private final SplittableRandom rand = new SplittableRandom(5);
+
+    public NetworkBatchTest() {
+        for (int i = 0; i < NETWORKS; i++) {
+            NeuralNetwork nn = new NeuralNetwork(11, 12, 3, rand.split());
+            batched.add(nn);
+            alone.add((NeuralNetwork) nn.clone());
+        }
+    }
+
+    //same fresh inputs for both, then a tick
+    private void step(NetworkBatch batch) {
+        for (int n = 0; n < NETWORKS; n++) {
+            double[] inputs = new double[11];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = rand.nextDouble();
+            }
+            batched.get(n).setInputs(inputs);
+            alone.get(n).setInputs(inputs);
+            alone.get(n).tick();
+        }
+        batch.tick(0, NETWORKS / 2);
+        batch.tick(NETWORKS / 2, NETWORKS);
+    }
+
+    private void assertSame() {
+        for (int n = 0; n < NETWORKS; n++) {
+            NeuralNetwork a = alone.get(n);
+            NeuralNetwork b = batched.get(n);
+            for (int i = 0; i < a.GENES; i++) {
+                assertTrue("network " + n + " neuron " + i,
+                        a.getOut(i) == b.getOut(i) && a.oldOut[i] == b.oldOut[b.base + i]);
+            }
+        }
+    }
+
+    @Test
+    public void batchTicksLikeTheNetworks() {
+        NetworkBatch batch = new NetworkBatch();
+        batch.pack(batched);
+        for (int t = 0; t < 200; t++) {
+            step(batch);
+            assertSame();
+        }
+    }
+
+    //only runs on a JVM with jdk.incubator.vector, e.g.
+    //ant test -Drun.jvmargs="--add-modules jdk.incubator.vector"
+    @Test
+    public void vectorKernelTicksLikeTheNetworks() {
+        assumeTrue("jdk.incubator.vector is not available", NetworkBatch.isVectorKernelAvailable());
+        NetworkBatch batch = new NetworkBatch();
+        batch.pack(batched);
+        assertTrue(NetworkBatch.setVectorKernelEnabled(true));
+        try {
+            //the vector exp may be off in the last bit
+            for (int t = 0; t < 50; t++) {
+                step(batch);
+                for (int n = 0; n < NETWORKS; n++) {
+                    NeuralNetwork a = alone.get(n);
+                    NeuralNetwork b = batched.get(n);
+                    for (int i = 0; i < a.GENES; i++) {
+                        String at = "network " + n + " neuron " + i;
+                        assertEquals(at, a.getOut(i), b.getOut(i), 1e-9);
+                        assertEquals(at, a.oldOut[i], b.oldOut[b.base + i], 1e-9);
+                    }
+                }
+            }
+        } finally {
+            NetworkBatch.setVectorKernelEnabled(false);
+        }
+    }
+
+    @Test
+    public void stateSurvivesRepackingAndClearing() {
+        NetworkBatch batch = new NetworkBatch();
+        batch.pack(batched);
+        for (int t = 0; t < 50; t++) {
+            step(batch);
+        }
+
+        //a clone of a bound network has activations of its own
+        NeuralNetwork copy = (NeuralNetwork) batched.get(3).clone();
+        assertFalse(copy.isBound());
+        assertArrayEquals(alone.get(3).getOutputs(), copy.getOutputs(), 0);
+
+        //a second pack (a new generation) starts from the current state,
+        //in a different order
+        List<NeuralNetwork> reversed = new ArrayList<>(batched);
+        Collections.reverse(reversed);
+        batch.pack(reversed);
+        for (int t = 0; t < 50; t++) {
+            step(batch);
+        }
+        assertSame();
+
+        //ticking a bound network on its own writes into the batch
+        batched.get(0).tick();
+        alone.get(0).tick();
+        assertSame();
+
+        batch.clear();
+        for (NeuralNetwork nn : batched) {
+            assertFalse(nn.isBound());
+        }
+        assertSame();
+        for (int t = 0; t < 50; t++) {
+            for (NeuralNetwork nn : batched) {
+                nn.tick();
+            }
+            for (NeuralNetwork nn : alone) {
+                nn.tick();
+            }
+        }
+        assertSame();
+    }
+}
@@ -0,0 +1,303 @@
+package neural;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import util.FastMath;
+
+/**
+ * The packed evaluation of NeuralNetwork must compute exactly what the object
+ * based evaluation did before it, neuron by neuron. OldNetwork and OldNeuron
+ * below are copies of that evaluation, built from the same genome.
+ */
+public class NeuralNetworkTest {
+
+    private static final int NETWORKS = 10;
+    private static final int INPUTS = 11;
+
+    private final SplittableRandom rand = new SplittableRandom(11);
+    private final List<NeuralNetwork> networks = new ArrayList<>();
+    private final List<OldNetwork> references = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        //the old evaluation used Math.exp
+        FastMath.setEnabled(false);
+
+        //a random genome, read back so both sides get their own copy of the
+        //same random stream for the mutations
+        for (int n = 0; n < NETWORKS; n++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new NeuralNetwork(INPUTS, 12, 3, rand.split()).writeGenome(new DataOutputStream(bytes));
+            long seed = rand.nextLong();
+            NeuralNetwork nn = NeuralNetwork.readGenome(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), new SplittableRandom(seed));
+            networks.add(nn);
+            references.add(new OldNetwork(nn, new SplittableRandom(seed)));
+        }
+    }
+
+    @Test
+    public void evaluationMatchesTheNeuronObjects() {
+        int differentiators = 0;
+        for (NeuralNetwork nn : networks) {
+            for (Neuron neuron : nn.getNeurons()) {
+                if (neuron.type) {
+                    differentiators++;
+                }
+            }
+        }
+        assertTrue("no differentiator neurons", differentiators > 0);
+
+        steps(100);
+        assertSame();
+    }
+
+    @Test
+    public void evaluationMatchesThroughMutateAndClone() {
+        steps(30);
+        for (int n = 0; n < NETWORKS; n++) {
+            networks.get(n).mutate();
+            references.get(n).mutate();
+        }
+        steps(30);
+
+        //clones start from the state of the original and go their own way
+        for (int n = 0; n < NETWORKS; n++) {
+            networks.add((NeuralNetwork) networks.get(n).clone());
+            references.add((OldNetwork) references.get(n).clone());
+        }
+        assertSame();
+        steps(30);
+        for (int n = NETWORKS; n < networks.size(); n++) {
+            networks.get(n).mutate();
+            references.get(n).mutate();
+        }
+        steps(30);
+        assertSame();
+    }
+
+    //same fresh inputs for both, then a tick, comparing every neuron
+    private void steps(int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            for (int n = 0; n < networks.size(); n++) {
+                double[] inputs = new double[INPUTS];
+                for (int i = 0; i < inputs.length; i++) {
+                    //a little outside [0, 1] so the clamping is covered
+                    inputs[i] = rand.nextDouble(-0.1, 1.1);
+                }
+                networks.get(n).setInputs(inputs);
+                references.get(n).setInputs(inputs);
+                networks.get(n).tick();
+                references.get(n).tick();
+            }
+            assertSame();
+        }
+    }
+
+    private void assertSame() {
+        for (int n = 0; n < networks.size(); n++) {
+            NeuralNetwork nn = networks.get(n);
+            OldNeuron[] old = references.get(n).neuralNet;
+            for (int i = 0; i < nn.GENES; i++) {
+                String at = "network " + n + " neuron " + i;
+                assertEquals(at, old[i].out, nn.out[nn.base + i], 0);
+                assertEquals(at, old[i].oldOut, nn.oldOut[nn.base + i], 0);
+            }
+            double[] expected = references.get(n).getOutputs();
+            double[] actual = nn.getOutputs();
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("network " + n + " output " + i, expected[i], actual[i], 0);
+            }
+        }
+    }
+
+    //the network as it was evaluated before the packed arrays
+    private static class OldNetwork implements Cloneable {
+
+        final int INPUTS;
+        final int OUTPUTS;
+        final int HIDDEN;
+        final int GENES;
+
+        private final double MUTATE_RATE = 0.05;
+
+        OldNeuron[] neuralNet;
+        private double[] outputs;
+        private SplittableRandom rand;
+
+        //a copy of the genome of nn, with all activations at zero
+        OldNetwork(NeuralNetwork nn, SplittableRandom rand) {
+            this.rand = rand;
+            this.INPUTS = nn.INPUTS;
+            this.OUTPUTS = nn.OUTPUTS;
+            this.HIDDEN = nn.HIDDEN;
+            this.GENES = nn.GENES;
+            this.outputs = new double[OUTPUTS];
+            this.neuralNet = new OldNeuron[GENES];
+            for (int i = 0; i < GENES; i++) {
+                this.neuralNet[i] = new OldNeuron(nn.getNeurons()[i], this);
+            }
+        }
+
+        void mutate() {
+            for (int i = 0; i < neuralNet.length; i++) {
+                OldNeuron neuron = neuralNet[i];
+                for (int j = 0; j < neuron.inIdx.length; j++) {
+                    //mutate input index (where the input is coming from)
+                    if (rand.nextDouble() <= MUTATE_RATE) {
+                        neuron.inIdx[j] = rand.nextInt(neuron.inIdx.length);
+                    }
+                    //mutate complement
+                    if (rand.nextDouble() <= MUTATE_RATE) {
+                        neuron.complement[j] = rand.nextBoolean();
+                    }
+                    //mutate weights
+                    if (rand.nextDouble() <= MUTATE_RATE) {
+                        neuron.weight[j] = rand.nextDouble();
+                    }
+                }
+            }
+        }
+
+        void setInputs(double[] inputs) {
+            for (int i = 0; i < INPUTS; i++) {
+                neuralNet[i].setOut(inputs[i]);
+            }
+        }
+
+        double[] getOutputs() {
+            for (int i = 0; i < OUTPUTS; i++) {
+                outputs[i] = neuralNet[(i) + (INPUTS) + (HIDDEN)].getOut();
+            }
+            return outputs;
+        }
+
+        void tick() {
+            for (int i = INPUTS; i < GENES; i++) {
+                neuralNet[i].getInputs();
+            }
+            for (int i = INPUTS; i < GENES; i++) {
+                neuralNet[i].tick();
+            }
+            for (int i = INPUTS; i < GENES; i++) {
+                neuralNet[i].back();
+            }
+            for (int i = INPUTS; i < GENES; i++) {
+                neuralNet[i].kp();
+            }
+        }
+
+        //the random stream is split like NeuralNetwork.clone does, the old
+        //clone shared it
+        @Override
+        public Object clone() {
+            try {
+                OldNeuron[] temp = new OldNeuron[GENES];
+                OldNetwork nn = (OldNetwork) super.clone();
+                nn.outputs = new double[GENES];
+                nn.rand = rand.split();
+                for (int i = 0; i < neuralNet.length; i++) {
+                    OldNeuron neuron = (OldNeuron) nn.neuralNet[i].clone();
+                    neuron.neuralNet = nn;
+                    temp[i] = neuron;
+                }
+                nn.neuralNet = temp;
+                return nn;
+            } catch (CloneNotSupportedException ex) {
+                throw new AssertionError(ex);
+            }
+        }
+    }
+
+    //a neuron with its activations, as it was before the packed arrays
+    private static class OldNeuron implements Cloneable {
+
+        OldNetwork neuralNet;
+        int[] inIdx;
+        double[] weight;
+        boolean[] complement;
+        double[] inputs;
+        double out;
+        private final double bias;
+        private final boolean type;
+        private final double kp;
+        private final double gw;
+        double oldOut;
+        private double target;
+
+        OldNeuron(Neuron genome, OldNetwork neuralNet) {
+            this.neuralNet = neuralNet;
+            inIdx = genome.inIdx.clone();
+            weight = genome.weight.clone();
+            complement = genome.complement.clone();
+            inputs = new double[inIdx.length];
+            bias = genome.bias;
+            type = genome.type;
+            kp = genome.kp;
+            gw = genome.gw;
+        }
+
+        void setOut(double o) {
+            out = o;
+            out = out < 0 ? 0 : out;
+            out = out > 1 ? 1 : out;
+        }
+
+        double getOut() {
+            out = out < 0.0 ? 0.0 : out;
+            out = out > 1.0 ? 1.0 : out;
+            return out;
+        }
+
+        void getInputs() {
+            OldNeuron[] neurons = neuralNet.neuralNet;
+            for (int i = 0; i < inIdx.length; i++) {
+                inputs[i] = neurons[inIdx[i]].out;
+            }
+        }
+
+        void tick() {
+            double acc = 0;
+            for (int i = 0; i < inputs.length; i++) {
+                double val = inputs[i];
+                if (type) {
+                    val -= oldOut;
+                    val *= 10;
+                }
+                acc += val * weight[i];
+            }
+            acc *= gw;
+            acc += bias;
+            acc = 1.0 / (1.0 + Math.exp(-acc));
+            target = acc;
+        }
+
+        void back() {
+            oldOut = out;
+        }
+
+        void kp() {
+            out = out + (target - out) * kp;
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            OldNeuron n = (OldNeuron) super.clone();
+            n.inIdx = inIdx.clone();
+            n.weight = weight.clone();
+            n.complement = complement.clone();
+            n.inputs = inputs.clone();
+            return n;
+        }
+    }
+}
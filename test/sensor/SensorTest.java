@@ -0,0 +1,153 @@
+package sensor;
+
+import java.awt.Rectangle;
+import java.awt.geom.Arc2D;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import worldObject.Agent;
+
+/**
+ * The sector test of Sensor.intersects against Arc2D.intersects, the shape
+ * the field of vision used to be tested with.
+ */
+public class SensorTest {
+
+    //slack for telling a touch (a single point or a line in common) from an
+    //overlap, only touches may be decided differently than by Arc2D
+    private static final double TOUCH = 1e-6;
+
+    //an agent with a fixed heading
+    private static class Host extends Agent {
+
+        Host(double centerX, double centerY, double heading) {
+            super(0, new SplittableRandom(1));
+            setCenterX(centerX);
+            setCenterY(centerY);
+            angle = heading;
+        }
+    }
+
+    private static Sensor eye(double heading, int offset, int diameter, int arc) {
+        Sensor eye = new Sensor(new Host(1000, 1000, heading), offset, diameter, arc);
+        eye.updateGeometry();
+        return eye;
+    }
+
+    private static boolean arc2D(Sensor eye, double x, double y, double w, double h) {
+        Arc2D arc = (Arc2D) eye.getSensor();
+        return new Arc2D.Double(arc.getX(), arc.getY(), arc.getWidth(), arc.getHeight(),
+                arc.getAngleStart(), arc.getAngleExtent(), Arc2D.PIE).intersects(x, y, w, h);
+    }
+
+    @Test
+    public void matchesArc2D() {
+        SplittableRandom rand = new SplittableRandom(42);
+        int touches = 0;
+        for (int i = 0; i < 2000; i++) {
+            //the eyes of Agent and anything else up to a half circle
+            Sensor eye = i % 2 == 0
+                    ? eye(rand.nextDouble(-720, 720), i % 4 == 0 ? 11 : -11, 600, 35)
+                    : eye(rand.nextInt(-360, 360), rand.nextInt(-180, 180),
+                            2 * rand.nextInt(1, 400), rand.nextInt(1, 180));
+            Rectangle fov = eye.getFieldOfViewBounds();
+            for (int j = 0; j < 500; j++) {
+                Rectangle r = new Rectangle(
+                        fov.x - 40 + rand.nextInt(fov.width + 80),
+                        fov.y - 40 + rand.nextInt(fov.height + 80),
+                        rand.nextInt(1, 40), rand.nextInt(1, 40));
+                boolean expected = arc2D(eye, r.x, r.y, r.width, r.height);
+                if (eye.intersects(r) != expected) {
+                    //only where the shapes merely touch
+                    assertTrue("sector and Arc2D disagree on " + r,
+                            arc2D(eye, r.x - TOUCH, r.y - TOUCH, r.width + 2 * TOUCH, r.height + 2 * TOUCH)
+                            && !arc2D(eye, r.x + TOUCH, r.y + TOUCH, r.width - 2 * TOUCH, r.height - 2 * TOUCH));
+                    touches++;
+                }
+            }
+        }
+        assertTrue("too many touching rectangles: " + touches, touches < 100);
+    }
+
+    @Test
+    public void fieldOfViewBoundsContainIntersections() {
+        SplittableRandom rand = new SplittableRandom(7);
+        for (int i = 0; i < 2000; i++) {
+            Sensor eye = eye(rand.nextDouble(-360, 360), rand.nextInt(-180, 180),
+                    2 * rand.nextInt(1, 400), rand.nextInt(1, 180));
+            Rectangle fov = eye.getFieldOfViewBounds();
+            for (int j = 0; j < 100; j++) {
+                Rectangle r = new Rectangle(
+                        fov.x - 40 + rand.nextInt(fov.width + 80),
+                        fov.y - 40 + rand.nextInt(fov.height + 80),
+                        rand.nextInt(1, 40), rand.nextInt(1, 40));
+                if (eye.intersects(r)) {
+                    assertTrue(r + " outside of " + fov, r.intersects(fov)
+                            || r.x == fov.x + fov.width || r.y == fov.y + fov.height
+                            || r.x + r.width == fov.x || r.y + r.height == fov.y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void boundaries() {
+        //apex at (1000, 1000), radius 100, looking along +x from -45 to 45
+        //degrees
+        Sensor eye = eye(0, 0, 200, 90);
+
+        //the rectangle holds the apex in a corner
+        assertTrue(eye.intersects(new Rectangle(990, 990, 10, 10)));
+        assertTrue(eye.intersects(new Rectangle(1000, 995, 10, 10)));
+        //behind the apex
+        assertFalse(eye.intersects(new Rectangle(900, 990, 50, 20)));
+        assertFalse(arc2D(eye, 900, 990, 50, 20));
+        //inside, containing
+        assertTrue(eye.intersects(new Rectangle(1040, 995, 5, 5)));
+        assertTrue(eye.intersects(new Rectangle(800, 800, 400, 400)));
+        assertTrue(arc2D(eye, 800, 800, 400, 400));
+        //tangent to the circle from outside, the circle is not inside
+        assertFalse(eye.intersects(new Rectangle(1100, 990, 10, 20)));
+        assertFalse(arc2D(eye, 1100, 990, 10, 20));
+        assertTrue(eye.intersects(new Rectangle(1099, 990, 10, 20)));
+        assertTrue(arc2D(eye, 1099, 990, 10, 20));
+        //no corner inside and no straight edge crossing, only the arc
+        //bulges into the left side
+        assertTrue(eye.intersects(new Rectangle(1098, 980, 10, 40)));
+        assertTrue(arc2D(eye, 1098, 980, 10, 40));
+        //corner touching the straight edge at -45 degrees from outside
+        assertTrue(eye.intersects(new Rectangle(1010, 1020, 10, 10)));
+        assertFalse(eye.intersects(new Rectangle(1009, 1020, 10, 10)));
+        assertFalse(arc2D(eye, 1009, 1020, 10, 10));
+
+        //looking up and to the right from 0 to 90 degrees, the straight edges
+        //lie on the axes through the apex
+        eye = eye(0, 45, 200, 90);
+        assertTrue(eye.intersects(new Rectangle(1020, 1000, 10, 10)));
+        assertFalse(eye.intersects(new Rectangle(1020, 1001, 10, 10)));
+        assertFalse(arc2D(eye, 1020, 1001, 10, 10));
+        assertTrue(eye.intersects(new Rectangle(990, 940, 10, 10)));
+        assertFalse(eye.intersects(new Rectangle(989, 940, 10, 10)));
+        assertFalse(arc2D(eye, 989, 940, 10, 10));
+        //the corner of the quarter circle on the x axis
+        assertFalse(eye.intersects(new Rectangle(1100, 1000, 10, 10)));
+        assertTrue(eye.intersects(new Rectangle(1099, 995, 10, 10)));
+        assertTrue(arc2D(eye, 1099, 995, 10, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHalfCircle() {
+        new Sensor(null, 0, 600, 180);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReflexArc() {
+        new Sensor(null, 0, 600, 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyArc() {
+        new Sensor(null, 0, 600, 0);
+    }
+}
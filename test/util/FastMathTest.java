@@ -0,0 +1,113 @@
+package util;
+
+import evolution.SimulationEngine;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The error bounds documented in FastMath, the exact fallback and the
+ * outcome of evolution with the tables against exact math.
+ */
+public class FastMathTest {
+
+    @After
+    public void disable() {
+        FastMath.setEnabled(false);
+    }
+
+    @Test
+    public void disabledIsExact() {
+        FastMath.setEnabled(false);
+        SplittableRandom rand = new SplittableRandom(1);
+        for (int i = 0; i < 100000; i++) {
+            double x = rand.nextDouble(-40, 40);
+            double d = rand.nextDouble(-1000, 1000);
+            assertEquals(1.0 / (1.0 + Math.exp(-x)), FastMath.sigmoid(x), 0);
+            assertEquals(Math.tanh(x), FastMath.tanh(x), 0);
+            assertEquals(Math.cos(Math.toRadians(d)), FastMath.cosDeg(d), 0);
+            assertEquals(Math.sin(Math.toRadians(d)), FastMath.sinDeg(d), 0);
+        }
+    }
+
+    @Test
+    public void errorBounds() {
+        FastMath.setEnabled(true);
+        SplittableRandom rand = new SplittableRandom(2);
+        for (int i = 0; i < 1000000; i++) {
+            double x = rand.nextDouble(-20, 20);
+            double d = rand.nextDouble(-1080, 1080);
+            assertEquals(1.0 / (1.0 + Math.exp(-x)), FastMath.sigmoid(x), 1.0e-6);
+            assertEquals(Math.tanh(x / 2), FastMath.tanh(x / 2), 1.5e-6);
+            assertEquals(Math.cos(Math.toRadians(d)), FastMath.cosDeg(d), 6.0e-7);
+            assertEquals(Math.sin(Math.toRadians(d)), FastMath.sinDeg(d), 6.0e-7);
+        }
+        //the ends of the tables and whole turns
+        for (double x : new double[]{-16, -15.999, 0, 15.999, 16, 8, -8, 7.999}) {
+            assertEquals(1.0 / (1.0 + Math.exp(-x)), FastMath.sigmoid(x), 1.0e-6);
+            assertEquals(Math.tanh(x), FastMath.tanh(x), 1.5e-6);
+        }
+        for (int turn = -3; turn <= 3; turn++) {
+            for (double d : new double[]{0, Math.ulp(360.0 * turn), -Math.ulp(360.0 * turn), 90, 180, 270}) {
+                double angle = 360.0 * turn + d;
+                assertEquals(Math.cos(Math.toRadians(angle)), FastMath.cosDeg(angle), 6.0e-7);
+                assertEquals(Math.sin(Math.toRadians(angle)), FastMath.sinDeg(angle), 6.0e-7);
+            }
+        }
+    }
+
+    /**
+     * The tables change the runs (the differences grow like any other), so
+     * runs can only be compared as a whole: the mean top scores of a number
+     * of seeds with and without the tables must not be told apart by a
+     * Welch t-test. The seeds are fixed, so this does not flicker.
+     */
+    @Test
+    public void evolutionStaysStatisticallyEquivalent() {
+        int seeds = 24;
+        double[] exact = new double[seeds];
+        double[] fast = new double[seeds];
+        for (int s = 0; s < seeds; s++) {
+            FastMath.setEnabled(false);
+            exact[s] = meanTopScore(s + 1);
+            FastMath.setEnabled(true);
+            fast[s] = meanTopScore(s + 1);
+        }
+        double t = (mean(fast) - mean(exact))
+                / Math.sqrt(variance(fast) / seeds + variance(exact) / seeds);
+        assertTrue("exact " + mean(exact) + ", fast " + mean(fast) + ", t = " + t, Math.abs(t) < 3);
+    }
+
+    //average top five score over the first generations of a run
+    private static double meanTopScore(long seed) {
+        int generations = 4;
+        SimulationEngine engine = new SimulationEngine(seed);
+        double sum = 0;
+        for (int g = 1; g <= generations; g++) {
+            while (engine.getGenerationsCompleted() < g) {
+                engine.update();
+            }
+            sum += engine.getLastTopAverage(5);
+        }
+        return sum / generations;
+    }
+
+    private static double mean(double[] v) {
+        double sum = 0;
+        for (double x : v) {
+            sum += x;
+        }
+        return sum / v.length;
+    }
+
+    private static double variance(double[] v) {
+        double m = mean(v);
+        double sum = 0;
+        for (double x : v) {
+            sum += (x - m) * (x - m);
+        }
+        return sum / (v.length - 1);
+    }
+}
@@ -0,0 +1,209 @@
+package worldObject;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * The lazy decay and the expiry wheel of FoodField against the food of the
+ * original simulation, which decayed every item on every tick.
+ */
+public class FoodFieldTest {
+
+    private static final int WORLD = 400;
+    private static final int COLS = WORLD / Food.SIZE;
+
+    /**
+     * The original food: age() once per tick, consume() on collisions and
+     * removal of dead food at the end of the tick. A spawn onto an occupied
+     * cell refills it like in the field.
+     */
+    private static final class EagerFood {
+
+        final double[] life = new double[COLS * COLS];
+        final boolean[] present = new boolean[COLS * COLS];
+        final boolean[] alive = new boolean[COLS * COLS];
+
+        void spawn(int cell) {
+            present[cell] = true;
+            alive[cell] = true;
+            life[cell] = 1;
+        }
+
+        void age() {
+            for (int cell = 0; cell < life.length; cell++) {
+                if (!present[cell]) {
+                    continue;
+                }
+                if (life[cell] <= FoodField.DECAY_THRESHOLD) {
+                    life[cell] -= FoodField.DECAY_AMOUNT;
+                }
+                if (life[cell] <= 0) {
+                    life[cell] = 0;
+                    alive[cell] = false;
+                }
+            }
+        }
+
+        double consume(int cell, double spikePercent) {
+            double value = 1 - spikePercent;
+            value = (value * 2) - 1;
+            value = Math.tanh(2 * value);
+            value = (value + 1) / 2;
+            double c = 0.2 * value;
+            life[cell] -= c;
+            life[cell] = life[cell] < 0 ? 0 : life[cell];
+            if (life[cell] == 0) {
+                alive[cell] = false;
+                return 0;
+            }
+            return c;
+        }
+
+        void purge() {
+            for (int cell = 0; cell < life.length; cell++) {
+                if (present[cell] && !alive[cell]) {
+                    present[cell] = false;
+                }
+            }
+        }
+    }
+
+    private static int cellOf(Food f) {
+        return ((int) f.getY() / Food.SIZE) * COLS + (int) f.getX() / Food.SIZE;
+    }
+
+    //runs both for the given number of ticks, with spawns and bites at
+    //random cells, and compares which food exists after every tick, the
+    //amount eaten per bite, the life of all food every few ticks (so the
+    //decay in between is applied lazily) and the lifetimes of all food
+    private static void assertSameFood(long seed, int ticks, int spawnsPerTick, int bitesPerTick) {
+        SplittableRandom rand = new SplittableRandom(seed);
+        Agent[] eaters = new Agent[4];
+        for (int i = 0; i < eaters.length; i++) {
+            eaters[i] = new Agent(i, rand.split());
+            eaters[i].spikePercent = i / (double) (eaters.length - 1);
+        }
+
+        FoodField field = new FoodField(WORLD, COLS * COLS);
+        EagerFood eager = new EagerFood();
+        long[] born = new long[COLS * COLS];
+        long lifetimes = 0;
+        long removed = 0;
+        double eaten = 0;
+
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < spawnsPerTick; i++) {
+                int cell = rand.nextInt(COLS * COLS);
+                field.spawn((cell % COLS) * Food.SIZE, (cell / COLS) * Food.SIZE);
+                eager.spawn(cell);
+                born[cell] = tick;
+            }
+
+            field.age();
+            eager.age();
+
+            for (int i = 0; i < bitesPerTick; i++) {
+                int cell = rand.nextInt(COLS * COLS);
+                Agent eater = eaters[rand.nextInt(eaters.length)];
+                assertEquals(eager.present[cell], field.get(cell) != null);
+                if (eager.present[cell]) {
+                    double c = field.get(cell).consume(eater);
+                    assertEquals("bite at tick " + tick, eager.consume(cell, eater.spikePercent), c, 0);
+                    eaten += c;
+                }
+            }
+
+            field.purge();
+            boolean[] before = eager.present.clone();
+            eager.purge();
+
+            int count = 0;
+            for (Food f : field) {
+                assertTrue("food at tick " + tick, eager.present[cellOf(f)]);
+                count++;
+            }
+            for (int cell = 0; cell < before.length; cell++) {
+                if (eager.present[cell]) {
+                    count--;
+                } else if (before[cell]) {
+                    lifetimes += tick - born[cell];
+                    removed++;
+                }
+            }
+            assertEquals("food at tick " + tick, 0, count);
+
+            if (tick % 37 == 0) {
+                for (Food f : field) {
+                    assertEquals("life at tick " + tick, eager.life[cellOf(f)], f.getLife(), 0);
+                }
+            }
+        }
+
+        //enough of the food has to run out by decay and by bites for this to
+        //mean anything
+        assertTrue("removed " + removed, removed > 100);
+        assertTrue("eaten " + eaten, eaten > 10);
+        assertTrue("mean lifetime " + lifetimes / (double) removed, lifetimes > 0);
+    }
+
+    @Test
+    public void lazyDecayMatchesEagerDecay() {
+        assertSameFood(1, 5000, 2, 20);
+    }
+
+    //few bites, most of the food is left alone for many ticks and many
+    //cells are scheduled in the wheel at once
+    @Test
+    public void rareBites() {
+        assertSameFood(2, 5000, 1, 3);
+    }
+
+    //the field fills up, refills and bites on decaying food are common
+    @Test
+    public void crowdedField() {
+        assertSameFood(3, 3000, 20, 200);
+    }
+
+    //sensors and the display read food from other threads
+    @Test
+    public void readingDoesNotWrite() {
+        FoodField field = new FoodField(WORLD, 10);
+        field.spawn(0, 0);
+        field.spawn(Food.SIZE, 0);
+        field.setLife(0, FoodField.DECAY_THRESHOLD / 2);
+        for (int t = 0; t < 20; t++) {
+            field.age();
+        }
+        double[] before = field.life.clone();
+        double life = field.get(0).getLife();
+        assertEquals(FoodField.DECAY_THRESHOLD / 2 - 20 * FoodField.DECAY_AMOUNT, life, 1e-12);
+        assertEquals(life, field.get(0).getFoodPercent(), 0);
+        assertEquals(1, field.get(1).getLife(), 0);
+        assertTrue(Arrays.equals(before, field.life));
+    }
+
+    @Test
+    public void decayRunsOutAtTheSameTick() {
+        FoodField field = new FoodField(WORLD, 10);
+        field.spawn(0, 0);
+        field.setLife(0, FoodField.DECAY_THRESHOLD);
+        EagerFood eager = new EagerFood();
+        eager.spawn(0);
+        eager.life[0] = FoodField.DECAY_THRESHOLD;
+
+        int tick = 0;
+        while (eager.present[0]) {
+            assertEquals("at tick " + tick, 1, field.size());
+            field.age();
+            eager.age();
+            field.purge();
+            eager.purge();
+            tick++;
+        }
+        assertEquals(0, field.size());
+        assertTrue("decayed in " + tick + " ticks", tick >= 99 && tick <= 101);
+    }
+}